@@ -0,0 +1,28 @@
+package com.example.wirelength.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Point d'entrée de benchmarks.jar: options JMH habituelles, avec le profileur gc toujours actif
+ * pour que chaque résultat donne aussi le débit d'allocation (gc.alloc.rate.norm).
+ *
+ * Exemple: java -jar target/benchmarks.jar DetectionBenchmark -p megapixels=12 -p engine=BFS,RUNS
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
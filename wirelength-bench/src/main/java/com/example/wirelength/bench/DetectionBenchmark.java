@@ -0,0 +1,95 @@
+package com.example.wirelength.bench;
+
+import com.example.wirelength.model.DetectionEngine;
+import com.example.wirelength.service.ColorMatcher;
+import com.example.wirelength.service.ComponentDetector;
+import com.example.wirelength.service.ComponentStats;
+import com.example.wirelength.service.DecodedFrame;
+import com.example.wirelength.service.DetectionContext;
+import com.example.wirelength.service.LazyFloodFillDetector;
+import com.example.wirelength.service.MaskFloodFillDetector;
+import com.example.wirelength.service.OpenCvDetector;
+import com.example.wirelength.service.RunLengthDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Noyau de detectLongSideByColor pour chaque moteur: détection de la composante (masque + recherche),
+ * puis longueur sur l'axe principal (PCA). Exécution séquentielle (pas de découpage en bandes)
+ * pour comparer les moteurs à ressources égales.
+ *
+ * Un nouveau moteur s'ajoute à DetectionEngine et à detectorFor(): il apparaît alors dans les résultats
+ * avec les mêmes images et paramètres que les autres.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class DetectionBenchmark {
+
+    @Param({"BFS", "LAZY", "RUNS", "OPENCV"})
+    public DetectionEngine engine;
+
+    @Param({"1", "12", "48"})
+    public int megapixels;
+
+    @Param({"THIN", "THICK", "DIAGONAL"})
+    public SyntheticFrames.Wire wire;
+
+    @Param({"20", "60", "120"})
+    public int tolerance;
+
+    private DecodedFrame frame;
+    private ColorMatcher matcher;
+    private ComponentDetector detector;
+    private DetectionContext context;
+    private ComponentStats component;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        frame = SyntheticFrames.create(megapixels, wire);
+        matcher = new ColorMatcher(SyntheticFrames.WIRE_R, SyntheticFrames.WIRE_G, SyntheticFrames.WIRE_B, tolerance);
+        detector = detectorFor(engine);
+        context = DetectionContext.sequential();
+        component = detector.detect(frame, matcher, context);
+        if (component == null || component.isEmpty()) {
+            throw new IllegalStateException("Fil non détecté: " + frame.getSourceName() + " " + engine);
+        }
+    }
+
+    static ComponentDetector detectorFor(DetectionEngine engine) {
+        switch (engine) {
+            case LAZY: return new LazyFloodFillDetector();
+            case RUNS: return new RunLengthDetector();
+            case OPENCV: return new OpenCvDetector();
+            default: return new MaskFloodFillDetector();
+        }
+    }
+
+    /** Détection complète puis longueur, comme detectLongSideByColor. */
+    @Benchmark
+    public int detectLongSide() {
+        ComponentStats comp = detector.detect(frame, matcher, context);
+        return Math.max(comp.longSideByBbox(), comp.majorAxisLength());
+    }
+
+    /** PCA seule, sur la composante détectée au setup (coût proportionnel au nombre de lignes). */
+    @Benchmark
+    public int majorAxisLength() {
+        return component.majorAxisLength();
+    }
+}
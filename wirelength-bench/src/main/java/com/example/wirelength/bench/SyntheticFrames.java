@@ -0,0 +1,89 @@
+package com.example.wirelength.bench;
+
+import com.example.wirelength.service.DecodedFrame;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+
+/**
+ * Images de test reproductibles: fond texturé dont certaines teintes sont proches de la couleur du fil
+ * (la tolérance change donc le nombre de pixels retenus), et un fil de forme donnée passant par le centre.
+ */
+public final class SyntheticFrames {
+
+    /** Couleur du fil (RVB). */
+    public static final int WIRE_R = 200, WIRE_G = 30, WIRE_B = 30;
+
+    public enum Wire {
+        THIN,      // trait horizontal de 3 px
+        THICK,     // bande horizontale de 40 px
+        DIAGONAL   // trait de 6 px en diagonale
+    }
+
+    private SyntheticFrames() {
+    }
+
+    /** Image 4:3 d'environ megapixels Mpx. */
+    public static DecodedFrame create(int megapixels, Wire wire) {
+        int width = (int) Math.round(Math.sqrt(megapixels * 1_000_000.0 * 4 / 3));
+        int height = (int) Math.round(megapixels * 1_000_000.0 / width);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        fillBackground(image);
+
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setColor(new Color(WIRE_R, WIRE_G, WIRE_B));
+        int length = width * 8 / 10;
+        switch (wire) {
+            case THIN -> g.fillRect((width - length) / 2, height / 2 - 1, length, 3);
+            case THICK -> g.fillRect((width - length) / 2, height / 2 - 20, length, 40);
+            case DIAGONAL -> {
+                g.setStroke(new BasicStroke(6f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER));
+                int dx = width * 4 / 10, dy = height * 4 / 10;
+                g.drawLine(width / 2 - dx, height / 2 - dy, width / 2 + dx, height / 2 + dy);
+            }
+        }
+        g.dispose();
+        return new DecodedFrame(image, megapixels + "MP-" + wire.name().toLowerCase());
+    }
+
+    /**
+     * Fond gris clair bruité, avec des taches rougeâtres à distance croissante de la couleur du fil
+     * (≈ 25, 50, 90 et 140), séparées du fil pour ne pas s'y connecter.
+     */
+    private static void fillBackground(BufferedImage image) {
+        byte[] bgr = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Random random = new Random(42);
+        int[][] stains = {{215, 45, 45}, {230, 60, 60}, {200, 90, 90}, {180, 120, 120}};
+        for (int y = 0; y < height; y++) {
+            for (int x = 0, i = y * width * 3; x < width; x++, i += 3) {
+                int grey = 200 + random.nextInt(30);
+                bgr[i] = (byte) grey;
+                bgr[i + 1] = (byte) grey;
+                bgr[i + 2] = (byte) grey;
+            }
+        }
+        // Taches carrées dans le quart supérieur et le quart inférieur de l'image
+        int size = Math.max(4, width / 200);
+        for (int s = 0; s < 400; s++) {
+            int[] c = stains[s % stains.length];
+            int x0 = random.nextInt(width - size);
+            int band = random.nextBoolean() ? 0 : height * 3 / 4;
+            int y0 = band + random.nextInt(height / 4 - size);
+            for (int y = y0; y < y0 + size; y++) {
+                for (int x = x0, i = (y * width + x0) * 3; x < x0 + size; x++, i += 3) {
+                    bgr[i] = (byte) c[2];
+                    bgr[i + 1] = (byte) c[1];
+                    bgr[i + 2] = (byte) c[0];
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.example.wirelength;
 
-import org.opencv.core.Core;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -9,10 +8,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @SpringBootApplication
 public class WirelengthApplication {
-    static {
-        // Charger la bibliothèque native OpenCV
-        System.loadLibrary(Core.NATIVE_LIBRARY_NAME); // Charge libopencv_java490.dylib sur macOS
-    }
+    // La bibliothèque native OpenCV est chargée au premier usage du moteur OpenCV (voir OpenCvLoader)
 
     public static void main(String[] args) {
         SpringApplication.run(WirelengthApplication.class, args);
@@ -0,0 +1,28 @@
+package com.example.wirelength.config;
+
+import com.example.wirelength.service.PixelBudget;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AdmissionConfig {
+
+    /**
+     * Budget de pixels des analyses simultanées.
+     * pixel-budget <= 0: dérivé du heap, heap-fraction du heap maximal divisé par bytes-per-pixel
+     * (image décodée + masque + tableaux de travail par pixel).
+     */
+    @Bean
+    public PixelBudget pixelBudget(
+            @Value("${wirelength.admission.pixel-budget:0}") long pixelBudget,
+            @Value("${wirelength.admission.bytes-per-pixel:10}") int bytesPerPixel,
+            @Value("${wirelength.admission.heap-fraction:0.6}") double heapFraction,
+            @Value("${wirelength.admission.max-wait-ms:2000}") long maxWaitMillis,
+            @Value("${wirelength.admission.retry-after-seconds:2}") int retryAfterSeconds) {
+        long pixels = pixelBudget > 0
+                ? pixelBudget
+                : (long) (Runtime.getRuntime().maxMemory() * heapFraction) / Math.max(1, bytesPerPixel);
+        return new PixelBudget(pixels, maxWaitMillis, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.wirelength.config;
+
+import com.example.wirelength.service.CalibrationJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class CalibrationStoreConfig {
+
+    /**
+     * Journal local des calibrations (store-dir relatif au répertoire de lancement).
+     * compact-every: nombre d'événements entre deux instantanés.
+     */
+    @Bean(destroyMethod = "close")
+    public CalibrationJournal calibrationJournal(
+            @Value("${wirelength.calibration.store-dir:data/calibrations}") String storeDir,
+            @Value("${wirelength.calibration.compact-every:500}") int compactEvery) throws IOException {
+        return new CalibrationJournal(Path.of(storeDir), compactEvery);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.wirelength.config;
+
+import com.example.wirelength.service.MeasurementCache;
+import com.example.wirelength.service.PipelineMetrics;
+import com.example.wirelength.service.RowBandExecutor;
+import com.example.wirelength.service.WorkBufferPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class DetectionConfig {
+
+    /**
+     * Pool fork-join dédié au découpage par bandes des grandes images.
+     * parallelism <= 0: nombre de cœurs disponibles.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public RowBandExecutor rowBandExecutor(
+            @Value("${wirelength.detection.parallel.threshold-pixels:8000000}") long thresholdPixels,
+            @Value("${wirelength.detection.parallel.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new RowBandExecutor(new ForkJoinPool(threads), thresholdPixels);
+    }
+
+    /** Cache des détections par contenu d'upload; max-entries <= 0 le désactive. */
+    @Bean
+    public MeasurementCache measurementCache(
+            @Value("${wirelength.cache.max-entries:1024}") int maxEntries) {
+        return new MeasurementCache(maxEntries);
+    }
+
+    /** Masques et pixels visités des détecteurs, réutilisés entre requêtes; max-retained-bytes <= 0 le désactive. */
+    @Bean
+    public WorkBufferPool workBufferPool(
+            @Value("${wirelength.buffers.max-retained-bytes:268435456}") long maxRetainedBytes) {
+        return new WorkBufferPool(maxRetainedBytes);
+    }
+
+    /** Durées par étape, échecs et tailles d'image (Micrometer, exposés sur /actuator/prometheus). */
+    @Bean
+    public PipelineMetrics pipelineMetrics() {
+        return new PipelineMetrics();
+    }
+}
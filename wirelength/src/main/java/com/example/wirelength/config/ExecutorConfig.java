@@ -0,0 +1,55 @@
+package com.example.wirelength.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Pool borné pour les mesures par lot (/measure-fabric-auto/batch).
+     * workers <= 0: nombre de cœurs disponibles. File bornée: au-delà, la tâche est refusée
+     * et le fichier concerné reçoit une ligne d'erreur.
+     */
+    @Bean(name = "batchExecutor", destroyMethod = "shutdown")
+    public ExecutorService batchExecutor(
+            @Value("${wirelength.batch.workers:0}") int workers,
+            @Value("${wirelength.batch.queue-capacity:256}") int queueCapacity) {
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "batch-measure-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Pool de calcul des endpoints de mesure et de calibration. Les threads de requête (virtuels
+     * en Java 21) ne font que recevoir l'upload; décodage et détection tournent ici, au plus
+     * un thread par cœur. File bornée: au-delà, la requête reçoit un 503.
+     */
+    @Bean(name = "analysisExecutor", destroyMethod = "shutdown")
+    public ExecutorService analysisExecutor(
+            @Value("${wirelength.analysis.workers:0}") int workers,
+            @Value("${wirelength.analysis.queue-capacity:64}") int queueCapacity) {
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "analysis-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.wirelength.config;
+
+import com.example.wirelength.controller.MeasurementStreamHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Endpoint WebSocket du flux de mesure continu (voir MeasurementStreamHandler).
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private MeasurementStreamHandler measurementStreamHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // Toutes les origines, comme CorsConfig pour /api/**
+        registry.addHandler(measurementStreamHandler, "/api/wirelength/stream")
+                .setAllowedOriginPatterns("*");
+    }
+}
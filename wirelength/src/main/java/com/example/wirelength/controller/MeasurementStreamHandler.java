@@ -0,0 +1,277 @@
+package com.example.wirelength.controller;
+
+import com.example.wirelength.model.CalibrationConfig;
+import com.example.wirelength.model.ColorSpace;
+import com.example.wirelength.model.DetectionEngine;
+import com.example.wirelength.model.DetectionOptions;
+import com.example.wirelength.model.MeasurementStrategy;
+import com.example.wirelength.model.RegionHint;
+import com.example.wirelength.service.CalibrationService;
+import com.example.wirelength.service.DecodedFrame;
+import com.example.wirelength.service.ImageAnalysisService;
+import com.example.wirelength.service.InMemoryUpload;
+import com.example.wirelength.service.PipelineMetrics;
+import com.example.wirelength.service.PixelBudget;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mesure continue d'un flux caméra: ws://.../api/wirelength/stream?r=..&g=..&b=..&tolerance=..
+ * (mêmes paramètres que /measure-fabric-auto: colorSpace, strategy, engine, scale).
+ *
+ * Chaque message binaire est une image encodée (JPEG, PNG). Chaque image mesurée renvoie un message texte:
+ * {"frame":n,"tracked":true,"result":{...},"dropped":k,"latencyMs":..} ou {"frame":n,"error":"...",...}.
+ * - Une seule image en attente par session: une image arrivée pendant une mesure remplace la précédente,
+ *   qui est abandonnée (dropped: total abandonné depuis l'ouverture). Le client n'attend jamais le serveur
+ *   et chaque mesure porte sur l'image la plus récente.
+ * - Suivi: le bbox de la dernière mesure sert de région de décodage pour l'image suivante
+ *   (tracked: true). Objet perdu ou coupé par la région: détection sur l'image entière.
+ * - Mesures sur le pool analysisExecutor et dans le budget de pixels, comme les requêtes REST.
+ */
+@Component
+public class MeasurementStreamHandler extends BinaryWebSocketHandler implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(MeasurementStreamHandler.class);
+
+    private static final int SEND_TIME_LIMIT_MS = 5000;
+    private static final int SEND_BUFFER_LIMIT = 512 * 1024;
+
+    @Autowired
+    private ImageAnalysisService imageAnalysisService;
+
+    @Autowired
+    private CalibrationService calibrationService;
+
+    @Autowired
+    private PixelBudget pixelBudget;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("analysisExecutor")
+    private ExecutorService analysisExecutor;
+
+    // Taille maximale d'une image du flux (message binaire)
+    @Value("${wirelength.stream.max-frame-bytes:16777216}")
+    private int maxFrameBytes;
+
+    private final Map<String, StreamSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong framesMeasured = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong framesFailed = new AtomicLong();
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("wirelength.stream.frames", framesMeasured, AtomicLong::get)
+                .description("Images reçues par le flux de mesure").tag("result", "measured").register(registry);
+        FunctionCounter.builder("wirelength.stream.frames", framesDropped, AtomicLong::get)
+                .description("Images reçues par le flux de mesure").tag("result", "dropped").register(registry);
+        FunctionCounter.builder("wirelength.stream.frames", framesFailed, AtomicLong::get)
+                .description("Images reçues par le flux de mesure").tag("result", "failed").register(registry);
+        Gauge.builder("wirelength.stream.sessions", sessions, Map::size)
+                .description("Flux de mesure ouverts").register(registry);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        session.setBinaryMessageSizeLimit(maxFrameBytes);
+        MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+        StreamSession stream = new StreamSession(
+                new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT), params);
+        try {
+            stream.options(null); // paramètres invalides: refus dès l'ouverture
+        } catch (IllegalArgumentException e) {
+            session.close(CloseStatus.BAD_DATA.withReason(String.valueOf(e.getMessage())));
+            return;
+        }
+        sessions.put(session.getId(), stream);
+        log.debug("Flux de mesure ouvert: {}", session.getId());
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        StreamSession stream = sessions.get(session.getId());
+        if (stream == null) return;
+        ByteBuffer payload = message.getPayload();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        stream.offer(bytes);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        StreamSession stream = sessions.remove(session.getId());
+        if (stream != null) stream.latest.set(null);
+        log.debug("Flux de mesure fermé: {} ({})", session.getId(), status);
+    }
+
+    /** Image reçue: numéro dans le flux et instant de réception. */
+    private record Frame(long seq, byte[] bytes, long receivedNanos) {}
+
+    private final class StreamSession {
+        private final WebSocketSession out;
+        private final MultiValueMap<String, String> params;
+        private final AtomicReference<Frame> latest = new AtomicReference<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicLong nextSeq = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile RegionHint roi; // bbox de la dernière mesure, null: image entière
+
+        StreamSession(WebSocketSession out, MultiValueMap<String, String> params) {
+            this.out = out;
+            this.params = params;
+        }
+
+        /** Options de détection de la session, avec la région de suivi. */
+        DetectionOptions options(RegionHint region) {
+            DetectionOptions options = new DetectionOptions(
+                    intParam("r"), intParam("g"), intParam("b"), intParam("tolerance"));
+            options.setColorSpace(ColorSpace.fromParam(params.getFirst("colorSpace")));
+            options.setStrategy(MeasurementStrategy.fromParam(params.getFirst("strategy")));
+            options.setEngine(DetectionEngine.fromParam(params.getFirst("engine")));
+            options.setDecodeScale(intParam("scale"));
+            options.setRegionHint(region);
+            return options;
+        }
+
+        private Integer intParam(String name) {
+            String value = params.getFirst(name);
+            if (value == null || value.isBlank()) return null;
+            try {
+                return Integer.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Paramètre " + name + " invalide: " + value);
+            }
+        }
+
+        /** Remplace l'image en attente (l'ancienne est abandonnée) et lance la mesure si aucune n'est en cours. */
+        void offer(byte[] bytes) {
+            Frame frame = new Frame(nextSeq.incrementAndGet(), bytes, System.nanoTime());
+            if (latest.getAndSet(frame) != null) {
+                dropped.incrementAndGet();
+                framesDropped.incrementAndGet();
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!draining.compareAndSet(false, true)) return;
+            try {
+                analysisExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                Frame frame = latest.getAndSet(null);
+                if (frame != null) send(frame, error(frame, "Serveur saturé, image non traitée"));
+            }
+        }
+
+        /**
+         * Une seule mesure à la fois par session, toujours sur l'image la plus récente.
+         * Une image par tâche: la suivante est resoumise au pool et passe derrière les autres sessions.
+         */
+        private void drain() {
+            try {
+                Frame frame = latest.getAndSet(null);
+                if (frame != null && out.isOpen()) send(frame, measure(frame));
+            } finally {
+                draining.set(false);
+            }
+            // Image arrivée pendant la mesure
+            if (out.isOpen() && latest.get() != null) schedule();
+        }
+
+        private Map<String, Object> measure(Frame frame) {
+            InMemoryUpload upload = new InMemoryUpload("frame-" + frame.seq(), frame.bytes());
+            try {
+                long t0 = System.nanoTime();
+                Dimension size = DecodedFrame.readDimensions(upload);
+                pipelineMetrics.record(PipelineMetrics.Stage.READ, t0);
+                try (PixelBudget.Permit permit = pixelBudget.acquire((long) size.width * size.height)) {
+                    CalibrationConfig calibration = calibrationService.getActiveCalibration();
+                    if (calibration == null) return error(frame, "Aucune calibration active");
+
+                    RegionHint region = roi;
+                    ImageAnalysisService.AutoAnalysis analysis =
+                            imageAnalysisService.analyzeStreamFrame(upload, options(region));
+                    if (!analysis.success || analysis.pixelLength <= 0) {
+                        roi = null; // objet perdu: image entière pour la suivante
+                        pipelineMetrics.detectionFailure("no_object");
+                        return error(frame, "Aucun objet coloré détecté");
+                    }
+                    Map<String, Integer> bbox = analysis.bbox;
+                    roi = new RegionHint(bbox.get("x"), bbox.get("y"), bbox.get("w"), bbox.get("h"));
+
+                    long t1 = System.nanoTime();
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("frame", frame.seq());
+                    line.put("tracked", analysis.regionHintUsed);
+                    line.put("result", WireLengthController.FabricMeasurementResult.from(analysis, calibration));
+                    pipelineMetrics.record(PipelineMetrics.Stage.RESPONSE, t1);
+                    framesMeasured.incrementAndGet();
+                    return line;
+                }
+            } catch (PixelBudget.BudgetExhaustedException e) {
+                return error(frame, "Serveur saturé, image non traitée");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return error(frame, "Serveur arrêté");
+            } catch (Exception e) {
+                roi = null;
+                pipelineMetrics.detectionFailure("error");
+                return error(frame, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            }
+        }
+
+        private Map<String, Object> error(Frame frame, String message) {
+            framesFailed.incrementAndGet();
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("frame", frame.seq());
+            line.put("error", message);
+            return line;
+        }
+
+        private void send(Frame frame, Map<String, Object> line) {
+            line.put("dropped", dropped.get());
+            line.put("latencyMs", Math.round((System.nanoTime() - frame.receivedNanos()) / 1e5) / 10.0);
+            try {
+                out.sendMessage(new TextMessage(objectMapper.writeValueAsString(line)));
+            } catch (IOException | IllegalStateException e) {
+                // Client déconnecté ou trop lent (limites du décorateur): la session est fermée
+                log.debug("Flux {}: envoi impossible ({})", out.getId(), e.getMessage());
+            }
+        }
+    }
+}
@@ -1,15 +1,48 @@
 package com.example.wirelength.controller;
 
 import com.example.wirelength.model.CalibrationConfig;
+import com.example.wirelength.model.ColorSpace;
+import com.example.wirelength.model.DetectionEngine;
+import com.example.wirelength.model.DetectionOptions;
+import com.example.wirelength.model.JobPriority;
+import com.example.wirelength.model.MeasurementStrategy;
+import com.example.wirelength.model.RegionHint;
 import com.example.wirelength.service.CalibrationService;
+import com.example.wirelength.service.DecodedFrame;
 import com.example.wirelength.service.ImageAnalysisService;
+import com.example.wirelength.service.MeasurementJobService;
+import com.example.wirelength.service.PipelineMetrics;
+import com.example.wirelength.service.PixelBudget;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/wirelength")
@@ -27,6 +60,32 @@ public class WireLengthController {
     @Autowired
     private CalibrationService calibrationService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("batchExecutor")
+    private ExecutorService batchExecutor;
+
+    @Autowired
+    @Qualifier("analysisExecutor")
+    private ExecutorService analysisExecutor;
+
+    @Autowired
+    private PixelBudget pixelBudget;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private MeasurementJobService measurementJobService;
+
+    @Value("${wirelength.batch.max-in-flight:4}")
+    private int batchMaxInFlight;
+
+    @Value("${wirelength.jobs.max-wait-seconds:30}")
+    private long jobsMaxWaitSeconds;
+
     // Modèles simples
     public static class FabricMeasurementResult {
         private double lengthInPixels;
@@ -38,6 +97,8 @@ public class WireLengthController {
         private String measurementDate;
         private ImageSize imageSize;
         private BBox bbox;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Long pixelCount; // mesure multi-objets uniquement
 
         public double getLengthInPixels() { return lengthInPixels; }
         public void setLengthInPixels(double lengthInPixels) { this.lengthInPixels = lengthInPixels; }
@@ -57,6 +118,38 @@ public class WireLengthController {
         public void setImageSize(ImageSize imageSize) { this.imageSize = imageSize; }
         public BBox getBbox() { return bbox; }
         public void setBbox(BBox bbox) { this.bbox = bbox; }
+        public Long getPixelCount() { return pixelCount; }
+        public void setPixelCount(Long pixelCount) { this.pixelCount = pixelCount; }
+
+        /** Conversion d'une analyse réussie avec la calibration donnée. */
+        public static FabricMeasurementResult from(ImageAnalysisService.AutoAnalysis analysis, CalibrationConfig calibration) {
+            double px = analysis.pixelLength;
+            double mm = px * calibration.getPixelToMmRatio();
+            double cm = mm / 10.0;
+            double m = mm / 1000.0;
+
+            FabricMeasurementResult result = new FabricMeasurementResult();
+            result.setLengthInPixels(Math.round(px));
+            result.setLengthInMm(Math.round(mm * 100.0) / 100.0);
+            result.setLengthInCm(Math.round(cm * 10.0) / 10.0);
+            result.setLengthInM(Math.round(m * 1000.0) / 1000.0);
+            result.setCalibrationUsed(calibration.getName());
+            result.setPixelRatio(calibration.getPixelToMmRatio());
+            result.setMeasurementDate(new java.util.Date().toString());
+            result.setImageSize(new ImageSize(analysis.imageWidth, analysis.imageHeight));
+            result.setPixelCount(analysis.pixelCount);
+
+            if (analysis.bbox != null) {
+                BBox bb = new BBox(
+                        analysis.bbox.get("x"),
+                        analysis.bbox.get("y"),
+                        analysis.bbox.get("w"),
+                        analysis.bbox.get("h")
+                );
+                result.setBbox(bb);
+            }
+            return result;
+        }
     }
 
     public static class ImageSize {
@@ -87,7 +180,7 @@ public class WireLengthController {
     // ---- CALIBRATION ----
 
     @PostMapping("/calibrate-auto-color")
-    public ResponseEntity<?> createCalibrationAutoColor(
+    public CompletableFuture<ResponseEntity<?>> createCalibrationAutoColor(
             @RequestParam("file") MultipartFile file,
             @RequestParam("knownWidthMm") double knownWidthMm,
             @RequestParam("configName") String configName,
@@ -96,84 +189,401 @@ public class WireLengthController {
             @RequestParam(value = "g", required = false) Integer g,
             @RequestParam(value = "b", required = false) Integer b,
             @RequestParam(value = "tolerance", required = false) Integer tolerance,
+            @RequestParam(value = "colorSpace", required = false) String colorSpace,
             @RequestParam(value = "strategy", required = false) String strategy,
-            @RequestParam(value = "bbox", required = false) String bbox
+            @RequestParam(value = "bbox", required = false) String bbox,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "pyramid", required = false) Integer pyramid,
+            @RequestParam(value = "scale", required = false) Integer scale
     ) {
-        try {
-            ImageAnalysisService.AutoAnalysis serverDet =
-                    imageAnalysisService.analyzeFabricAuto(file, r, g, b, tolerance);
+        // Décodage et détection sur le pool de calcul: le thread de requête est libéré
+        return submitAnalysis(file, () -> {
+            try {
+                DetectionOptions options = new DetectionOptions(r, g, b, tolerance);
+                options.setEngine(DetectionEngine.fromParam(engine));
+                options.setColorSpace(ColorSpace.fromParam(colorSpace));
+                options.setStrategy(MeasurementStrategy.fromParam(strategy));
+                options.setPyramidFactor(pyramid);
+                options.setDecodeScale(scale);
+                options.setRegionHint(RegionHint.parse(bbox));
+                ImageAnalysisService.AutoAnalysis serverDet =
+                        imageAnalysisService.analyzeFabricAuto(file, options);
 
-            if (!serverDet.success || serverDet.pixelLength <= 0) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Détection auto impossible pour calibration"));
-            }
+                if (!serverDet.success || serverDet.pixelLength <= 0) {
+                    pipelineMetrics.detectionFailure("no_object");
+                    return ResponseEntity.badRequest().body(Map.of("error", "Détection auto impossible pour calibration"));
+                }
 
-            double pixels = serverDet.pixelLength;
-            CalibrationConfig config = calibrationService.createCalibration(
-                    configName.trim(),
-                    knownWidthMm,
-                    pixels,
-                    "Calibration auto-couleur (long côté, tol=" + (tolerance != null ? tolerance : 100) + ", strat=rectangle)"
-            );
-            return ResponseEntity.ok(config);
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
-        }
+                double pixels = serverDet.pixelLength;
+                CalibrationConfig config = calibrationService.createCalibration(
+                        configName.trim(),
+                        knownWidthMm,
+                        pixels,
+                        "Calibration auto-couleur (" + (options.getStrategy() == MeasurementStrategy.SKELETON ? "squelette" : "long côté")
+                                + ", tol=" + (tolerance != null ? tolerance : 100)
+                                + ", strat=" + options.getStrategy().name().toLowerCase(Locale.ROOT) + ")"
+                );
+                return ResponseEntity.ok(config);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            } catch (Exception e) {
+                pipelineMetrics.detectionFailure("error");
+                return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+            }
+        });
     }
 
     // ---- MESURE AUTOMATIQUE ----
 
     @PostMapping("/measure-fabric-auto")
-    public ResponseEntity<?> measureFabricAuto(
+    public CompletableFuture<ResponseEntity<?>> measureFabricAuto(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "r", required = false) Integer r,
             @RequestParam(value = "g", required = false) Integer g,
             @RequestParam(value = "b", required = false) Integer b,
-            @RequestParam(value = "tolerance", required = false) Integer tolerance
+            @RequestParam(value = "tolerance", required = false) Integer tolerance,
+            @RequestParam(value = "colorSpace", required = false) String colorSpace,
+            @RequestParam(value = "strategy", required = false) String strategy,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "pyramid", required = false) Integer pyramid,
+            @RequestParam(value = "scale", required = false) Integer scale,
+            @RequestParam(value = "bbox", required = false) String bbox
     ) {
-        try {
-            CalibrationConfig activeCalibration = calibrationService.getActiveCalibration();
-            if (activeCalibration == null) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Aucune calibration active"));
-            }
+        return submitAnalysis(file, () -> {
+            try {
+                CalibrationConfig activeCalibration = calibrationService.getActiveCalibration();
+                if (activeCalibration == null) {
+                    return ResponseEntity.badRequest().body(Map.of("error", "Aucune calibration active"));
+                }
 
-            ImageAnalysisService.AutoAnalysis analysis =
-                    imageAnalysisService.analyzeFabricAuto(file, r, g, b, tolerance);
+                DetectionOptions options = new DetectionOptions(r, g, b, tolerance);
+                options.setEngine(DetectionEngine.fromParam(engine));
+                options.setColorSpace(ColorSpace.fromParam(colorSpace));
+                options.setStrategy(MeasurementStrategy.fromParam(strategy));
+                options.setPyramidFactor(pyramid);
+                options.setDecodeScale(scale);
+                options.setRegionHint(RegionHint.parse(bbox));
+                ImageAnalysisService.AutoAnalysis analysis =
+                        imageAnalysisService.analyzeFabricAuto(file, options);
 
-            if (!analysis.success || analysis.pixelLength <= 0) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Aucun objet coloré détecté"));
+                if (!analysis.success || analysis.pixelLength <= 0) {
+                    pipelineMetrics.detectionFailure("no_object");
+                    return ResponseEntity.badRequest().body(Map.of("error", "Aucun objet coloré détecté"));
+                }
+
+                long t0 = System.nanoTime();
+                FabricMeasurementResult result = FabricMeasurementResult.from(analysis, activeCalibration);
+                pipelineMetrics.record(PipelineMetrics.Stage.RESPONSE, t0);
+                return ResponseEntity.ok(result);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            } catch (Exception e) {
+                pipelineMetrics.detectionFailure("error");
+                return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
             }
+        });
+    }
 
-            double px = analysis.pixelLength;
-            double mm = px * activeCalibration.getPixelToMmRatio();
-            double cm = mm / 10.0;
-            double m = mm / 1000.0;
+    /**
+     * Mesure de tous les objets de la couleur cible dans une seule image (plateau de fils):
+     * un décodage, un étiquetage, les composantes de moins de minArea pixels sont ignorées.
+     * Réponse: {"count": n, "objects": [...]} triés de haut en bas, un résultat de mesure par objet.
+     */
+    @PostMapping("/measure-fabric-auto/objects")
+    public CompletableFuture<ResponseEntity<?>> measureAllObjects(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "r", required = false) Integer r,
+            @RequestParam(value = "g", required = false) Integer g,
+            @RequestParam(value = "b", required = false) Integer b,
+            @RequestParam(value = "tolerance", required = false) Integer tolerance,
+            @RequestParam(value = "colorSpace", required = false) String colorSpace,
+            @RequestParam(value = "strategy", required = false) String strategy,
+            @RequestParam(value = "scale", required = false) Integer scale,
+            @RequestParam(value = "minArea", required = false, defaultValue = "50") long minArea
+    ) {
+        return submitAnalysis(file, () -> {
+            try {
+                CalibrationConfig activeCalibration = calibrationService.getActiveCalibration();
+                if (activeCalibration == null) {
+                    return ResponseEntity.badRequest().body(Map.of("error", "Aucune calibration active"));
+                }
 
-            FabricMeasurementResult result = new FabricMeasurementResult();
-            result.setLengthInPixels(Math.round(px));
-            result.setLengthInMm(Math.round(mm * 100.0) / 100.0);
-            result.setLengthInCm(Math.round(cm * 10.0) / 10.0);
-            result.setLengthInM(Math.round(m * 1000.0) / 1000.0);
-            result.setCalibrationUsed(activeCalibration.getName());
-            result.setPixelRatio(activeCalibration.getPixelToMmRatio());
-            result.setMeasurementDate(new java.util.Date().toString());
-            result.setImageSize(new ImageSize(analysis.imageWidth, analysis.imageHeight));
+                DetectionOptions options = new DetectionOptions(r, g, b, tolerance);
+                options.setColorSpace(ColorSpace.fromParam(colorSpace));
+                options.setStrategy(MeasurementStrategy.fromParam(strategy));
+                options.setDecodeScale(scale);
+                List<ImageAnalysisService.AutoAnalysis> analyses =
+                        imageAnalysisService.analyzeAllObjects(file, options, minArea);
 
-            if (analysis.bbox != null) {
-                BBox bb = new BBox(
-                        analysis.bbox.get("x"),
-                        analysis.bbox.get("y"),
-                        analysis.bbox.get("w"),
-                        analysis.bbox.get("h")
-                );
-                result.setBbox(bb);
+                if (analyses.isEmpty()) {
+                    pipelineMetrics.detectionFailure("no_object");
+                    return ResponseEntity.badRequest().body(Map.of("error", "Aucun objet coloré détecté"));
+                }
+
+                long t0 = System.nanoTime();
+                List<FabricMeasurementResult> objects = new ArrayList<>(analyses.size());
+                for (ImageAnalysisService.AutoAnalysis analysis : analyses) {
+                    objects.add(FabricMeasurementResult.from(analysis, activeCalibration));
+                }
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("count", objects.size());
+                body.put("objects", objects);
+                pipelineMetrics.record(PipelineMetrics.Stage.RESPONSE, t0);
+                return ResponseEntity.ok(body);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            } catch (Exception e) {
+                pipelineMetrics.detectionFailure("error");
+                return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
             }
+        });
+    }
 
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
+    /**
+     * Mesure d'un lot de fichiers. Les images sont traitées en parallèle sur un pool borné et chaque
+     * résultat est renvoyé dès qu'il est prêt, une ligne JSON par fichier (NDJSON, ordre d'achèvement):
+     * {"index":0,"file":"a.jpg","result":{...}} ou {"index":1,"file":"b.jpg","error":"..."}.
+     * r/g/b/tolerance: une valeur partagée par tout le lot, ou une valeur par fichier (même ordre que files).
+     */
+    @PostMapping("/measure-fabric-auto/batch")
+    public ResponseEntity<StreamingResponseBody> measureFabricAutoBatch(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "r", required = false) List<Integer> r,
+            @RequestParam(value = "g", required = false) List<Integer> g,
+            @RequestParam(value = "b", required = false) List<Integer> b,
+            @RequestParam(value = "tolerance", required = false) List<Integer> tolerance,
+            @RequestParam(value = "colorSpace", required = false) String colorSpace,
+            @RequestParam(value = "strategy", required = false) String strategy,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "pyramid", required = false) Integer pyramid,
+            @RequestParam(value = "scale", required = false) Integer scale
+    ) {
+        // Calibration figée pour tout le lot
+        CalibrationConfig activeCalibration = calibrationService.getActiveCalibration();
+        if (activeCalibration == null) {
+            return jsonError("Aucune calibration active");
+        }
+        List<DetectionOptions> perFile = new ArrayList<>(files.size());
+        try {
+            DetectionEngine detectionEngine = DetectionEngine.fromParam(engine);
+            ColorSpace space = ColorSpace.fromParam(colorSpace);
+            MeasurementStrategy measurementStrategy = MeasurementStrategy.fromParam(strategy);
+            for (int i = 0; i < files.size(); i++) {
+                DetectionOptions options = new DetectionOptions(
+                        batchParam(r, i, files.size(), "r"), batchParam(g, i, files.size(), "g"),
+                        batchParam(b, i, files.size(), "b"), batchParam(tolerance, i, files.size(), "tolerance"));
+                options.setEngine(detectionEngine);
+                options.setColorSpace(space);
+                options.setStrategy(measurementStrategy);
+                options.setPyramidFactor(pyramid);
+                options.setDecodeScale(scale);
+                perFile.add(options);
+            }
+        } catch (IllegalArgumentException e) {
+            return jsonError(e.getMessage());
+        }
+
+        StreamingResponseBody body = out -> {
+            CompletionService<String> done = new ExecutorCompletionService<>(batchExecutor);
+            int next = 0;
+            int inFlight = 0;
+            while (next < files.size() || inFlight > 0) {
+                // Au plus batchMaxInFlight images décodées en même temps par lot
+                while (next < files.size() && inFlight < batchMaxInFlight) {
+                    final int index = next++;
+                    try {
+                        done.submit(() -> measureBatchItem(index, files.get(index), perFile.get(index), activeCalibration));
+                        inFlight++;
+                    } catch (RejectedExecutionException e) {
+                        writeLine(out, objectMapper.writeValueAsString(Map.of(
+                                "index", index, "file", String.valueOf(files.get(index).getOriginalFilename()),
+                                "error", "Serveur saturé, fichier non traité")));
+                    }
+                }
+                if (inFlight == 0) continue;
+                String line;
+                try {
+                    line = done.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    line = objectMapper.writeValueAsString(Map.of("error", String.valueOf(e.getCause().getMessage())));
+                }
+                inFlight--;
+                writeLine(out, line);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    // ---- MESURE ASYNCHRONE ----
+
+    /**
+     * Mesure asynchrone pour les très grandes images: l'upload est mis de côté et la réponse 202
+     * ({"jobId": ..., "status": "queued", ...}, en-tête Location) part aussitôt. Le résultat se lit
+     * sur GET /jobs/{id}. priority: interactive (défaut) ou bulk. File pleine: 503 avec Retry-After.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitMeasurementJob(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "r", required = false) Integer r,
+            @RequestParam(value = "g", required = false) Integer g,
+            @RequestParam(value = "b", required = false) Integer b,
+            @RequestParam(value = "tolerance", required = false) Integer tolerance,
+            @RequestParam(value = "colorSpace", required = false) String colorSpace,
+            @RequestParam(value = "strategy", required = false) String strategy,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "pyramid", required = false) Integer pyramid,
+            @RequestParam(value = "scale", required = false) Integer scale,
+            @RequestParam(value = "priority", required = false) String priority
+    ) {
+        CalibrationConfig activeCalibration = calibrationService.getActiveCalibration();
+        if (activeCalibration == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Aucune calibration active"));
+        }
+        try {
+            DetectionOptions options = new DetectionOptions(r, g, b, tolerance);
+            options.setEngine(DetectionEngine.fromParam(engine));
+            options.setColorSpace(ColorSpace.fromParam(colorSpace));
+            options.setStrategy(MeasurementStrategy.fromParam(strategy));
+            options.setPyramidFactor(pyramid);
+            options.setDecodeScale(scale);
+            MeasurementJobService.Job job =
+                    measurementJobService.submit(file, options, activeCalibration, JobPriority.fromParam(priority));
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/api/wirelength/jobs/" + job.getId())
+                    .body(jobBody(job));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return serviceUnavailable(pixelBudget.getRetryAfterSeconds());
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * État d'une mesure asynchrone: queued, running, succeeded (result: AnalysisResult) ou failed (error).
+     * wait (secondes, plafonné): attente longue, la réponse part dès la fin de la tâche ou à l'échéance.
+     * Tâche inconnue ou résultat expiré: 404.
+     */
+    @GetMapping("/jobs/{id}")
+    public CompletableFuture<ResponseEntity<?>> getMeasurementJob(
+            @PathVariable("id") String id,
+            @RequestParam(value = "wait", required = false, defaultValue = "0") long waitSeconds
+    ) {
+        MeasurementJobService.Job job = measurementJobService.get(id);
+        if (job == null) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Tâche inconnue ou expirée")));
+        }
+        long waitMillis = TimeUnit.SECONDS.toMillis(Math.max(0, Math.min(waitSeconds, jobsMaxWaitSeconds)));
+        return measurementJobService.await(job, waitMillis).thenApply(j -> ResponseEntity.ok(jobBody(j)));
+    }
+
+    private static Map<String, Object> jobBody(MeasurementJobService.Job job) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("jobId", job.getId());
+        body.put("status", job.getStatus().name().toLowerCase(Locale.ROOT));
+        body.put("priority", job.getPriority().name().toLowerCase(Locale.ROOT));
+        body.put("imageName", job.getImageName());
+        body.put("submittedAt", job.getSubmittedAt());
+        if (job.getStartedAt() != null) body.put("startedAt", job.getStartedAt());
+        if (job.getFinishedAt() != null) body.put("finishedAt", job.getFinishedAt());
+        if (job.getResult() != null) body.put("result", job.getResult());
+        if (job.getError() != null) body.put("error", job.getError());
+        return body;
+    }
+
+    /**
+     * Exécute une analyse sur le pool de calcul dimensionné (analysisExecutor) et renvoie un résultat asynchrone.
+     * La lecture de l'en-tête et l'attente du budget de pixels se font aussi sur ce pool:
+     * le thread de requête est rendu dès la soumission de la tâche.
+     * Budget ou pool saturé: 503 avec Retry-After plutôt qu'une attente sans fin.
+     */
+    private CompletableFuture<ResponseEntity<?>> submitAnalysis(MultipartFile file, Supplier<ResponseEntity<?>> analysis) {
+        try {
+            return CompletableFuture.supplyAsync(() -> admitAndRun(file, analysis), analysisExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(serviceUnavailable(pixelBudget.getRetryAfterSeconds()));
+        }
+    }
+
+    /** Réserve la taille de l'image dans le budget, exécute l'analyse et rend le budget. */
+    private ResponseEntity<?> admitAndRun(MultipartFile file, Supplier<ResponseEntity<?>> analysis) {
+        try (PixelBudget.Permit permit = admit(file)) {
+            return analysis.get();
+        } catch (PixelBudget.BudgetExhaustedException e) {
+            return serviceUnavailable(e.getRetryAfterSeconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return serviceUnavailable(pixelBudget.getRetryAfterSeconds());
+        } catch (IOException e) {
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
     }
 
+    /** Réserve dans le budget la taille de l'image, lue dans son en-tête sans décoder les pixels. */
+    private PixelBudget.Permit admit(MultipartFile file) throws IOException, InterruptedException {
+        long t0 = System.nanoTime();
+        Dimension size = DecodedFrame.readDimensions(file);
+        pipelineMetrics.record(PipelineMetrics.Stage.READ, t0);
+        return pixelBudget.acquire((long) size.width * size.height);
+    }
+
+    private static ResponseEntity<?> serviceUnavailable(int retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(Map.of("error", "Serveur saturé, réessayez plus tard"));
+    }
+
+    /** Réponse 400 {"error": ...} pour les endpoints à réponse en flux. */
+    private ResponseEntity<StreamingResponseBody> jsonError(String message) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, Map.of("error", message)));
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+        out.flush();
+    }
+
+    /** Une ligne NDJSON; une image invalide produit une ligne d'erreur, jamais une exception. */
+    private String measureBatchItem(int index, MultipartFile file, DetectionOptions options, CalibrationConfig calibration) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", index);
+        line.put("file", file.getOriginalFilename());
+        try (PixelBudget.Permit permit = admit(file)) {
+            ImageAnalysisService.AutoAnalysis analysis = imageAnalysisService.analyzeFabricAuto(file, options);
+            if (!analysis.success || analysis.pixelLength <= 0) {
+                pipelineMetrics.detectionFailure("no_object");
+                line.put("error", "Aucun objet coloré détecté");
+            } else {
+                long t0 = System.nanoTime();
+                line.put("result", FabricMeasurementResult.from(analysis, calibration));
+                pipelineMetrics.record(PipelineMetrics.Stage.RESPONSE, t0);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            line.put("error", "Serveur saturé, fichier non traité");
+        } catch (Exception e) {
+            pipelineMetrics.detectionFailure("error");
+            line.put("error", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+        return objectMapper.writeValueAsString(line);
+    }
+
+    /** Valeur partagée (1 valeur) ou par fichier (autant de valeurs que de fichiers). */
+    private static Integer batchParam(List<Integer> values, int index, int fileCount, String name) {
+        if (values == null || values.isEmpty()) return null;
+        if (values.size() == 1) return values.get(0);
+        if (values.size() == fileCount) return values.get(index);
+        throw new IllegalArgumentException("Paramètre " + name + ": 1 valeur ou " + fileCount + " valeurs attendues");
+    }
+
     // ---- Endpoints existants utiles (non modifiés) ----
 
     @GetMapping("/calibrations")
@@ -213,7 +623,8 @@ public class WireLengthController {
                         "/health", "/info",
                         "/calibrate-auto-color",
                         "/calibrations", "/set-calibration", "/active-calibration",
-                        "/measure-fabric-auto"
+                        "/measure-fabric-auto", "/measure-fabric-auto/objects", "/measure-fabric-auto/batch",
+                        "/jobs", "/stream"
                 }
         ));
     }
@@ -9,6 +9,7 @@ public class CalibrationConfig {
     private String description;
     private boolean active;
     private Date createdAt;
+    private boolean frozen; // instantané publié par le registre: plus aucune modification
 
     public CalibrationConfig() {
         this.createdAt = new Date();
@@ -51,29 +52,48 @@ public class CalibrationConfig {
 
     // Setters
     public void setName(String name) {
+        checkMutable();
         this.name = name;
     }
 
     public void setPixelToMmRatio(double pixelToMmRatio) {
+        checkMutable();
         this.pixelToMmRatio = pixelToMmRatio;
     }
 
     public void setCameraSetup(String cameraSetup) {
+        checkMutable();
         this.cameraSetup = cameraSetup;
     }
 
     public void setDescription(String description) {
+        checkMutable();
         this.description = description;
     }
 
     public void setActive(boolean active) {
+        checkMutable();
         this.active = active;
     }
 
     public void setCreatedAt(Date createdAt) {
+        checkMutable();
         this.createdAt = createdAt;
     }
 
+    /**
+     * Fige l'objet: tout setter lève ensuite IllegalStateException.
+     * Permet de partager un même instantané entre threads sans copie ni verrou.
+     */
+    public CalibrationConfig freeze() {
+        this.frozen = true;
+        return this;
+    }
+
+    private void checkMutable() {
+        if (frozen) throw new IllegalStateException("Calibration en lecture seule: " + name);
+    }
+
     @Override
     public String toString() {
         return "CalibrationConfig{" +
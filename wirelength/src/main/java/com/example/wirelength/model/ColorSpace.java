@@ -0,0 +1,23 @@
+package com.example.wirelength.model;
+
+/**
+ * Espace où est mesurée la distance à la couleur cible (la tolérance est exprimée dans ses unités).
+ * - RGB : distance euclidienne RGB, 0 à 441 (comportement historique)
+ * - HSV : teinte et saturation dans le plan chromatique (0 à 255), luminosité pondérée ×0,5:
+ *         moins sensible à un éclairage inégal
+ * - LAB : ΔE CIE76 dans CIELab (sRGB, D65), ~2 = écart à peine visible, 100 = noir / blanc
+ */
+public enum ColorSpace {
+    RGB,
+    HSV,
+    LAB;
+
+    /** Valeur de paramètre de requête (insensible à la casse), RGB si absente. */
+    public static ColorSpace fromParam(String value) {
+        if (value == null || value.trim().isEmpty()) return RGB;
+        for (ColorSpace s : values()) {
+            if (s.name().equalsIgnoreCase(value.trim())) return s;
+        }
+        throw new IllegalArgumentException("Espace colorimétrique inconnu: " + value);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.wirelength.model;
+
+/**
+ * Moteur de recherche de composante utilisé par la détection auto couleur.
+ * - BFS  : masque couleur complet puis remplissage (comportement historique)
+ * - LAZY : pas de masque, chaque pixel est classé au moment où le remplissage l'atteint
+ * - RUNS : lignes codées en segments, fusionnés par union-find (objets pleins, grandes images)
+ * - OPENCV : décodage imdecode et détection native OpenCV (connectedComponentsWithStats)
+ */
+public enum DetectionEngine {
+    BFS,
+    LAZY,
+    RUNS,
+    OPENCV;
+
+    /** Valeur de paramètre de requête (insensible à la casse), null si absente (moteur par défaut de la configuration). */
+    public static DetectionEngine fromParam(String value) {
+        if (value == null || value.trim().isEmpty()) return null;
+        for (DetectionEngine e : values()) {
+            if (e.name().equalsIgnoreCase(value.trim())) return e;
+        }
+        throw new IllegalArgumentException("Moteur de détection inconnu: " + value);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.wirelength.model;
+
+/**
+ * Paramètres de la détection auto couleur.
+ * r/g/b nuls: la couleur cible est échantillonnée au centre de l'image.
+ */
+public class DetectionOptions {
+    public static final int DEFAULT_TOLERANCE = 100;
+
+    private Integer r;
+    private Integer g;
+    private Integer b;
+    private Integer tolerance;
+    private DetectionEngine engine; // null: moteur par défaut de la configuration
+    private int pyramidFactor = 1; // 1: pleine résolution, 2/4/8: recherche grossière puis affinage
+    private int decodeScale = 1;   // 1: pleine résolution, 2/4/8: image réduite dès le décodage
+    private RegionHint regionHint;   // bbox déjà trouvé côté client (optionnel)
+    private ColorSpace colorSpace = ColorSpace.RGB;
+    private MeasurementStrategy strategy = MeasurementStrategy.RECTANGLE;
+
+    public DetectionOptions() {
+    }
+
+    public DetectionOptions(Integer r, Integer g, Integer b, Integer tolerance) {
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        this.tolerance = tolerance;
+    }
+
+    public boolean hasTargetColor() {
+        return r != null && g != null && b != null;
+    }
+
+    /** Tolérance effective (100 par défaut). */
+    public int effectiveTolerance() {
+        return (tolerance != null && tolerance > 0) ? tolerance : DEFAULT_TOLERANCE;
+    }
+
+    // Getters et Setters
+    public Integer getR() { return r; }
+    public void setR(Integer r) { this.r = r; }
+    public Integer getG() { return g; }
+    public void setG(Integer g) { this.g = g; }
+    public Integer getB() { return b; }
+    public void setB(Integer b) { this.b = b; }
+    public Integer getTolerance() { return tolerance; }
+    public void setTolerance(Integer tolerance) { this.tolerance = tolerance; }
+    public DetectionEngine getEngine() { return engine; }
+    public void setEngine(DetectionEngine engine) { this.engine = engine; }
+    public int getPyramidFactor() { return pyramidFactor; }
+
+    public ColorSpace getColorSpace() { return colorSpace; }
+    /** null: RGB. */
+    public void setColorSpace(ColorSpace colorSpace) { this.colorSpace = colorSpace != null ? colorSpace : ColorSpace.RGB; }
+
+    public MeasurementStrategy getStrategy() { return strategy; }
+    /** null: RECTANGLE. */
+    public void setStrategy(MeasurementStrategy strategy) { this.strategy = strategy != null ? strategy : MeasurementStrategy.RECTANGLE; }
+
+    public RegionHint getRegionHint() { return regionHint; }
+    public void setRegionHint(RegionHint regionHint) { this.regionHint = regionHint; }
+
+    public int getDecodeScale() { return decodeScale; }
+
+    /**
+     * null ou 1: pleine résolution. 2, 4 ou 8: l'image est décodée réduite, les longueurs et bbox
+     * sont ramenés en pixels de la source (précision de l'ordre de scale pixels).
+     */
+    public void setDecodeScale(Integer decodeScale) {
+        int k = decodeScale != null ? decodeScale : 1;
+        if (k != 1 && k != 2 && k != 4 && k != 8) {
+            throw new IllegalArgumentException("Échelle de décodage invalide (1, 2, 4 ou 8): " + decodeScale);
+        }
+        this.decodeScale = k;
+    }
+
+    /** null ou 1: désactivé. */
+    public void setPyramidFactor(Integer pyramidFactor) {
+        int k = pyramidFactor != null ? pyramidFactor : 1;
+        if (k != 1 && k != 2 && k != 4 && k != 8) {
+            throw new IllegalArgumentException("Facteur pyramide invalide (1, 2, 4 ou 8): " + pyramidFactor);
+        }
+        this.pyramidFactor = k;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.wirelength.model;
+
+/**
+ * Priorité d'une mesure asynchrone (/jobs).
+ * - INTERACTIVE : un utilisateur attend le résultat, passe avant les tâches en masse
+ * - BULK        : traitements en masse (captures line-scan, lots), exécutés quand aucune tâche interactive n'attend
+ */
+public enum JobPriority {
+    INTERACTIVE,
+    BULK;
+
+    /** Valeur de paramètre de requête (insensible à la casse), INTERACTIVE si absente. */
+    public static JobPriority fromParam(String value) {
+        if (value == null || value.trim().isEmpty()) return INTERACTIVE;
+        for (JobPriority p : values()) {
+            if (p.name().equalsIgnoreCase(value.trim())) return p;
+        }
+        throw new IllegalArgumentException("Priorité inconnue: " + value);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.wirelength.model;
+
+/**
+ * Calcul de la longueur à partir de la composante détectée.
+ * - RECTANGLE : max(long côté du bbox, étendue sur l'axe principal), pour les objets droits (défaut)
+ * - SKELETON  : squelette d'un pixel puis plus long chemin (pas diagonaux comptés √2),
+ *               pour les fils courbes ou enroulés
+ */
+public enum MeasurementStrategy {
+    RECTANGLE,
+    SKELETON;
+
+    /** Valeur de paramètre de requête (insensible à la casse), RECTANGLE si absente. */
+    public static MeasurementStrategy fromParam(String value) {
+        if (value == null || value.trim().isEmpty()) return RECTANGLE;
+        for (MeasurementStrategy s : values()) {
+            if (s.name().equalsIgnoreCase(value.trim())) return s;
+        }
+        throw new IllegalArgumentException("Stratégie de mesure inconnue: " + value);
+    }
+}
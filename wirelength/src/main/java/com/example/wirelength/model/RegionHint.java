@@ -0,0 +1,54 @@
+package com.example.wirelength.model;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Région de l'image où le client a déjà trouvé l'objet (x, y, w, h en pixels de l'image source).
+ * Formats acceptés: JSON {"x":..,"y":..,"w":..,"h":..} ou "x,y,w,h".
+ */
+public class RegionHint {
+    private final int x;
+    private final int y;
+    private final int w;
+    private final int h;
+
+    public RegionHint(int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0) throw new IllegalArgumentException("bbox invalide: largeur et hauteur doivent être positives");
+        this.x = x;
+        this.y = y;
+        this.w = w;
+        this.h = h;
+    }
+
+    /** null si la valeur est absente. */
+    public static RegionHint parse(String value) {
+        if (value == null || value.trim().isEmpty()) return null;
+        String v = value.trim();
+        try {
+            if (v.startsWith("{")) {
+                return new RegionHint(jsonInt(v, "x"), jsonInt(v, "y"), jsonInt(v, "w"), jsonInt(v, "h"));
+            }
+            String[] parts = v.split("[,;\\s]+");
+            if (parts.length != 4) throw new IllegalArgumentException("bbox invalide: " + value);
+            return new RegionHint(
+                    (int) Math.round(Double.parseDouble(parts[0])), (int) Math.round(Double.parseDouble(parts[1])),
+                    (int) Math.round(Double.parseDouble(parts[2])), (int) Math.round(Double.parseDouble(parts[3])));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bbox invalide: " + value);
+        }
+    }
+
+    private static int jsonInt(String json, String key) {
+        Matcher m = Pattern.compile("\"" + key + "\"\\s*:\\s*(-?[0-9.]+)").matcher(json);
+        if (!m.find()) throw new IllegalArgumentException("bbox invalide: champ " + key + " manquant");
+        return (int) Math.round(Double.parseDouble(m.group(1)));
+    }
+
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getW() { return w; }
+    public int getH() { return h; }
+    public int centerX() { return x + w / 2; }
+    public int centerY() { return y + h / 2; }
+}
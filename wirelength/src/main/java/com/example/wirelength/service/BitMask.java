@@ -0,0 +1,100 @@
+package com.example.wirelength.service;
+
+import java.util.Arrays;
+
+/**
+ * Masque binaire compact: un bit par pixel, chaque ligne occupe wordsPerRow mots de 64 bits
+ * (bit x de la ligne = bit x % 64 du mot x / 64). Les bits au-delà de la largeur restent à 0,
+ * ce qui permet les opérations par mot (décalages, et/ou) sans cas particulier en bout de ligne.
+ *
+ * Un masque peut reposer sur un tampon réutilisé (WorkBufferPool), plus long que nécessaire et
+ * entièrement à 0 au départ. La plage de mots modifiée par set() est suivie pour que clear()
+ * ne remette à 0 que cette plage. set() et clear(x, y) ne sont pas thread-safe.
+ */
+public final class BitMask {
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    // Plage [dirtyFrom, dirtyTo] des mots modifiés depuis le dernier clear() (vide: from > to)
+    private int dirtyFrom = Integer.MAX_VALUE;
+    private int dirtyTo = -1;
+
+    public BitMask(int width, int height) {
+        this(width, height, null);
+    }
+
+    /** Masque sur words (au moins wordCount(width, height) mots, tous à 0), null: nouveau tableau. */
+    BitMask(int width, int height, long[] words) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Dimensions de masque invalides");
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        int count = wordCount(width, height);
+        if (words != null && words.length < count) throw new IllegalArgumentException("Tampon de masque trop court");
+        this.words = words != null ? words : new long[count];
+    }
+
+    /** Nombre de mots d'un masque width × height. */
+    static int wordCount(int width, int height) {
+        return Math.multiplyExact((width + 63) >>> 6, height);
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getWordsPerRow() { return wordsPerRow; }
+
+    /**
+     * Mots du masque, ligne par ligne (accès direct pour les opérations par mot). Le tableau peut
+     * dépasser wordsPerRow × height (tampon réutilisé, mots en trop à 0). Les écritures directes
+     * ne sont pas suivies: tout le masque est considéré comme modifié.
+     */
+    public long[] words() {
+        markDirty(0, height);
+        return words;
+    }
+
+    /** Déclare modifiées les lignes [y0, y1) (écritures directes dans words()). */
+    public void markDirty(int y0, int y1) {
+        if (y1 <= y0) return;
+        dirtyFrom = Math.min(dirtyFrom, y0 * wordsPerRow);
+        dirtyTo = Math.max(dirtyTo, y1 * wordsPerRow - 1);
+    }
+
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y) {
+        int i = y * wordsPerRow + (x >>> 6);
+        words[i] |= 1L << x;
+        if (i < dirtyFrom) dirtyFrom = i;
+        if (i > dirtyTo) dirtyTo = i;
+    }
+
+    public void clear(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] &= ~(1L << x);
+    }
+
+    /** Remet à 0 la plage modifiée seulement; renvoie le nombre de mots effacés. */
+    public int clear() {
+        if (dirtyTo < dirtyFrom) return 0;
+        Arrays.fill(words, dirtyFrom, dirtyTo + 1, 0);
+        int cleared = dirtyTo - dirtyFrom + 1;
+        dirtyFrom = Integer.MAX_VALUE;
+        dirtyTo = -1;
+        return cleared;
+    }
+
+    /** Nombre de bits à 1. */
+    public long cardinality() {
+        long n = 0;
+        for (int i = 0, end = wordsPerRow * height; i < end; i++) n += Long.bitCount(words[i]);
+        return n;
+    }
+
+    /** Tampon sous-jacent (restitution au pool). */
+    long[] buffer() { return words; }
+}
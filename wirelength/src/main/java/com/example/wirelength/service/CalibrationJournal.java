@@ -0,0 +1,399 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.CalibrationConfig;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Stockage local des calibrations: journal en ajout seul (une ligne JSON par événement)
+ * et instantané compacté périodiquement. Aucune base externe.
+ *
+ * Fichiers dans le répertoire: snapshot.json (état complet + génération g) et journal-g.ndjson
+ * (événements postérieurs à l'instantané). La compaction écrit l'instantané g+1, le renomme
+ * atomiquement, puis ouvre journal-(g+1): un arrêt brutal à n'importe quelle étape laisse
+ * une paire instantané/journal cohérente.
+ *
+ * Les écritures passent par un thread dédié qui regroupe tous les événements en attente
+ * en une seule écriture et un seul fsync.
+ *
+ * Après une erreur d'écriture (disque plein, E/S), le lot partiel est retiré et le journal s'arrête:
+ * les événements suivants échouent jusqu'au redémarrage, le fichier reste relisible.
+ */
+public final class CalibrationJournal implements AutoCloseable {
+
+    private static final String SNAPSHOT = "snapshot.json";
+    private static final Map<String, Object> STOP = Map.of();
+
+    /** État restauré: calibrations dans l'ordre de création et nom de la calibration active. */
+    public static final class State {
+        private final List<CalibrationConfig> calibrations;
+        private final String activeName;
+
+        State(List<CalibrationConfig> calibrations, String activeName) {
+            this.calibrations = calibrations;
+            this.activeName = activeName;
+        }
+
+        public List<CalibrationConfig> getCalibrations() { return calibrations; }
+        public String getActiveName() { return activeName; }
+        public boolean isEmpty() { return calibrations.isEmpty(); }
+    }
+
+    private static final class Pending {
+        final Map<String, Object> event;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        Pending(Map<String, Object> event) { this.event = event; }
+    }
+
+    private final Path dir;
+    private final int compactEvery;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final State restored;
+
+    // Miroir de l'état à la position courante du journal (thread d'écriture uniquement)
+    private final LinkedHashMap<String, CalibrationConfig> mirror = new LinkedHashMap<>();
+    private String mirrorActive;
+    private long generation;
+    private int eventsSinceSnapshot;
+    private FileChannel journal;
+    // Première erreur d'écriture: plus aucun ajout jusqu'au redémarrage
+    private volatile IOException failure;
+
+    /**
+     * Ouvre (ou crée) le stockage et rejoue instantané + journal.
+     * compactEvery: nombre d'événements au-delà duquel l'instantané est réécrit.
+     */
+    public CalibrationJournal(Path dir, int compactEvery) throws IOException {
+        this.dir = dir;
+        this.compactEvery = Math.max(1, compactEvery);
+        Files.createDirectories(dir);
+        replay();
+        this.restored = currentState();
+        this.journal = openJournal(generation);
+        this.writer = new Thread(this::writeLoop, "calibration-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public State getRestoredState() { return restored; }
+
+    // ---- Événements ----
+
+    public static Map<String, Object> created(CalibrationConfig c) {
+        Map<String, Object> e = new LinkedHashMap<>();
+        e.put("op", "create");
+        e.put("name", c.getName());
+        e.put("ratio", c.getPixelToMmRatio());
+        e.put("cameraSetup", c.getCameraSetup());
+        e.put("description", c.getDescription());
+        e.put("createdAt", c.getCreatedAt() != null ? c.getCreatedAt().getTime() : null);
+        return e;
+    }
+
+    public static Map<String, Object> activated(String name) {
+        Map<String, Object> e = new LinkedHashMap<>();
+        e.put("op", "activate");
+        e.put("name", name);
+        return e;
+    }
+
+    public static Map<String, Object> updated(String name, String cameraSetup, String description) {
+        Map<String, Object> e = new LinkedHashMap<>();
+        e.put("op", "update");
+        e.put("name", name);
+        e.put("cameraSetup", cameraSetup);
+        e.put("description", description);
+        return e;
+    }
+
+    public static Map<String, Object> deleted(String name) {
+        Map<String, Object> e = new LinkedHashMap<>();
+        e.put("op", "delete");
+        e.put("name", name);
+        return e;
+    }
+
+    /**
+     * Ajoute un événement sans attendre le disque. Le future se termine après le fsync
+     * du lot qui le contient. Les appels doivent être faits dans l'ordre des modifications.
+     */
+    public CompletableFuture<Void> append(Map<String, Object> event) {
+        Pending p = new Pending(event);
+        if (!writer.isAlive()) {
+            p.durable.completeExceptionally(new IOException("Journal des calibrations fermé"));
+            return p.durable;
+        }
+        if (failure != null) {
+            p.durable.completeExceptionally(stopped());
+            return p.durable;
+        }
+        queue.add(p);
+        return p.durable;
+    }
+
+    /** Vide la file, écrit un dernier fsync et arrête le thread d'écriture. */
+    @Override
+    public void close() {
+        queue.add(new Pending(STOP));
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---- Écriture groupée ----
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            batch.clear();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch);
+            StringBuilder lines = new StringBuilder();
+            List<Pending> events = new ArrayList<>(batch.size());
+            for (Pending p : batch) {
+                if (p.event == STOP) {
+                    running = false;
+                    continue;
+                }
+                try {
+                    lines.append(mapper.writeValueAsString(p.event)).append('\n');
+                    events.add(p);
+                } catch (IOException e) {
+                    p.durable.completeExceptionally(e);
+                }
+            }
+            if (failure != null) {
+                for (Pending p : events) p.durable.completeExceptionally(stopped());
+                continue;
+            }
+            long batchStart = -1;   // taille du journal avant le lot, tant que le lot n'est pas durable
+            try {
+                if (!events.isEmpty()) {
+                    ByteBuffer buf = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                    batchStart = journal.size();
+                    while (buf.hasRemaining()) journal.write(buf);
+                    journal.force(false);   // un seul fsync pour tout le lot
+                    batchStart = -1;
+                }
+                for (Pending p : events) {
+                    apply(p.event);
+                    p.durable.complete(null);
+                }
+                eventsSinceSnapshot += events.size();
+                if (eventsSinceSnapshot >= compactEvery) compact();
+            } catch (IOException e) {
+                failure = e;
+                if (batchStart >= 0) discardPartialBatch(batchStart);
+                for (Pending p : events) p.durable.completeExceptionally(e);
+            }
+        }
+        try {
+            journal.close();
+        } catch (IOException ignored) {
+        }
+        // Événements arrivés après l'arrêt
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            p.durable.completeExceptionally(new IOException("Journal des calibrations fermé"));
+        }
+    }
+
+    /**
+     * Retire un lot écrit en partie: sa ligne incomplète ne doit pas précéder d'autres lignes.
+     * En cas d'échec, elle reste la dernière ligne (le journal est arrêté) et replay() la retire.
+     */
+    private void discardPartialBatch(long size) {
+        try {
+            journal.truncate(size);
+            journal.force(false);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private IOException stopped() {
+        return new IOException("Journal des calibrations arrêté après une erreur d'écriture, redémarrage nécessaire", failure);
+    }
+
+    /** Écrit l'instantané g+1 puis bascule sur un journal vide. */
+    private void compact() throws IOException {
+        long next = generation + 1;
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("generation", next);
+        snapshot.put("active", mirrorActive);
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (CalibrationConfig c : mirror.values()) items.add(created(c));
+        snapshot.put("calibrations", items);
+
+        Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(mapper.writeValueAsBytes(snapshot));
+            while (buf.hasRemaining()) out.write(buf);
+            out.force(true);
+        }
+        try {
+            Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING);
+        }
+        // Renommage durable avant de supprimer l'ancien journal: sinon un arrêt brutal peut
+        // ramener l'ancien instantané sans le journal qui le complète
+        syncDirectory();
+        FileChannel previous = journal;
+        journal = openJournal(next);
+        previous.close();
+        Files.deleteIfExists(journalPath(generation));
+        syncDirectory();
+        generation = next;
+        eventsSinceSnapshot = 0;
+    }
+
+    /** fsync du répertoire (création, renommage, suppression d'entrées). */
+    private void syncDirectory() throws IOException {
+        FileChannel d;
+        try {
+            d = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return; // Windows: un répertoire ne s'ouvre pas en FileChannel, pas de fsync possible
+        }
+        try (d) {
+            d.force(true);
+        }
+    }
+
+    // ---- Relecture ----
+
+    private void replay() throws IOException {
+        Path snapshotPath = dir.resolve(SNAPSHOT);
+        if (Files.exists(snapshotPath)) {
+            Map<String, Object> snapshot = mapper.readValue(snapshotPath.toFile(), new TypeReference<Map<String, Object>>() {});
+            generation = ((Number) snapshot.getOrDefault("generation", 0)).longValue();
+            Object items = snapshot.get("calibrations");
+            if (items instanceof List<?> list) {
+                for (Object item : list) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> e = (Map<String, Object>) item;
+                    apply(e);
+                }
+            }
+            mirrorActive = (String) snapshot.get("active");
+        }
+        Path journalPath = journalPath(generation);
+        if (Files.exists(journalPath)) {
+            byte[] bytes = Files.readAllBytes(journalPath);
+            int end = bytes.length;
+            while (end > 0 && bytes[end - 1] != '\n') end--;
+            if (end < bytes.length) {
+                // Dernière ligne tronquée par un arrêt brutal: retirée pour que les ajouts suivants restent lisibles
+                try (FileChannel ch = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+                    ch.truncate(end);
+                    ch.force(false);
+                }
+            }
+            String[] lines = new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n");
+            for (int i = 0; i < lines.length; i++) {
+                if (lines[i].isBlank()) continue;
+                try {
+                    apply(mapper.readValue(lines[i], new TypeReference<Map<String, Object>>() {}));
+                } catch (IOException e) {
+                    throw new IOException("Journal des calibrations illisible, ligne " + (i + 1), e);
+                }
+                eventsSinceSnapshot++;
+            }
+        }
+        deleteStaleJournals();
+    }
+
+    private void deleteStaleJournals() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "journal-*.ndjson")) {
+            for (Path f : files) {
+                if (!f.getFileName().equals(journalPath(generation).getFileName())) Files.deleteIfExists(f);
+            }
+        }
+    }
+
+    /** Applique un événement au miroir; idempotent et tolérant (même règles que CalibrationService). */
+    private void apply(Map<String, Object> e) {
+        String name = (String) e.get("name");
+        if (name == null) return;
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        switch (String.valueOf(e.get("op"))) {
+            case "create" -> {
+                CalibrationConfig c = new CalibrationConfig(name, ((Number) e.get("ratio")).doubleValue(),
+                        (String) e.get("cameraSetup"), (String) e.get("description"));
+                Object createdAt = e.get("createdAt");
+                c.setCreatedAt(createdAt instanceof Number n ? new Date(n.longValue()) : null);
+                mirror.remove(key);
+                mirror.put(key, c);
+                mirrorActive = key;
+            }
+            case "activate" -> {
+                if (mirror.containsKey(key)) mirrorActive = key;
+            }
+            case "update" -> {
+                CalibrationConfig c = mirror.get(key);
+                if (c == null) return;
+                if (e.get("cameraSetup") != null) c.setCameraSetup((String) e.get("cameraSetup"));
+                if (e.get("description") != null) c.setDescription((String) e.get("description"));
+            }
+            case "delete" -> {
+                if (mirror.remove(key) != null && key.equals(mirrorActive)) {
+                    mirrorActive = mirror.isEmpty() ? null : mirror.keySet().iterator().next();
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private State currentState() {
+        List<CalibrationConfig> list = new ArrayList<>();
+        String activeName = null;
+        for (Map.Entry<String, CalibrationConfig> e : mirror.entrySet()) {
+            CalibrationConfig c = e.getValue();
+            CalibrationConfig copy = new CalibrationConfig(c.getName(), c.getPixelToMmRatio(), c.getCameraSetup(), c.getDescription());
+            copy.setCreatedAt(c.getCreatedAt());
+            list.add(copy);
+            if (e.getKey().equals(mirrorActive)) activeName = c.getName();
+        }
+        return new State(list, activeName);
+    }
+
+    private Path journalPath(long gen) {
+        return dir.resolve("journal-" + gen + ".ndjson");
+    }
+
+    private FileChannel openJournal(long gen) throws IOException {
+        return FileChannel.open(journalPath(gen), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+}
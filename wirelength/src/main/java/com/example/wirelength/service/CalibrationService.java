@@ -1,60 +1,147 @@
 package com.example.wirelength.service;
 
 import com.example.wirelength.model.CalibrationConfig;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Service simple en mémoire pour gérer les calibrations.
- * - Stocke une liste volatile (non persistante) de CalibrationConfig
+ * Service de gestion des calibrations.
+ * - Registre concurrent indexé par nom (insensible à la casse)
+ * - Persistance locale par journal (CalibrationJournal), rejoué au démarrage
  * - Fournit création, activation, suppression, conversion
  * - Initialise une calibration par défaut au démarrage
  *
- * Note: pour un usage production, remplacez par un repository (JPA) persistant.
+ * Concurrence: les CalibrationConfig publiées sont des instantanés figés (freeze()).
+ * Les lectures (mesure, listes) ne prennent aucun verrou: la calibration active est une seule
+ * lecture volatile. Les écritures (création, activation, suppression) sont rares et sérialisées,
+ * chacune est atomique vis-à-vis des lectures.
  */
 @Service
 public class CalibrationService {
 
-    private final List<CalibrationConfig> calibrations = new ArrayList<>();
-    private CalibrationConfig activeCalibration;
-    private boolean initialized = false;
+    private static final Logger log = LoggerFactory.getLogger(CalibrationService.class);
+
+    /** Calibration enregistrée: instantané inactif et rang d'insertion (ordre des listes). */
+    private static final class Entry {
+        final long order;
+        final CalibrationConfig snapshot;
+
+        Entry(long order, CalibrationConfig snapshot) {
+            this.order = order;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> calibrations = new ConcurrentHashMap<>();
+    private final AtomicReference<CalibrationConfig> activeCalibration = new AtomicReference<>();
+    private final Object writeLock = new Object();
+    private long nextOrder;
+
+    // Absent (tests unitaires): calibrations en mémoire uniquement
+    @Autowired(required = false)
+    private CalibrationJournal journal;
 
     public CalibrationService() {
-        System.out.println("✅ CalibrationService initialisé");
+        log.debug("CalibrationService initialisé");
         initDefaultCalibration();
-        initialized = true;
     }
 
-    private void ensureInitialized() {
-        if (!initialized) {
-            initDefaultCalibration();
-            initialized = true;
+    /**
+     * Remplace l'état initial par celui du journal. Stockage vide (premier démarrage):
+     * la calibration par défaut y est enregistrée.
+     */
+    @PostConstruct
+    void restore() {
+        if (journal == null) return;
+        CalibrationJournal.State state = journal.getRestoredState();
+        CompletableFuture<Void> pending;
+        synchronized (writeLock) {
+            if (state.isEmpty()) {
+                CalibrationConfig active = activeCalibration.get();
+                pending = active != null ? journal.append(CalibrationJournal.created(active)) : null;
+            } else {
+                calibrations.clear();
+                activeCalibration.set(null);
+                for (CalibrationConfig c : state.getCalibrations()) {
+                    calibrations.put(key(c.getName()), new Entry(nextOrder++, snapshot(c, false)));
+                }
+                Entry active = calibrations.get(key(state.getActiveName() != null
+                        ? state.getActiveName() : state.getCalibrations().get(0).getName()));
+                activeCalibration.set(snapshot(active.snapshot, true));
+                pending = null;
+            }
         }
+        awaitDurable(pending);
+        log.info("Calibrations restaurées: {}", calibrations.size());
+    }
+
+    /** Enregistre l'événement dans le journal (appelé sous writeLock, pour garder l'ordre des modifications). */
+    private CompletableFuture<Void> record(Map<String, Object> event) {
+        return journal != null ? journal.append(event) : null;
+    }
+
+    /**
+     * Attend le fsync, hors du verrou d'écriture. Une erreur disque n'annule pas la modification
+     * en mémoire: elle est signalée, la calibration reste utilisable jusqu'au redémarrage.
+     */
+    private static void awaitDurable(CompletableFuture<Void> pending) {
+        if (pending == null) return;
+        try {
+            pending.join();
+        } catch (RuntimeException e) {
+            log.warn("Journal des calibrations: écriture impossible", e);
+        }
+    }
+
+    /** Clé du registre: nom sans espaces autour, en minuscules indépendamment de la locale. */
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Copie figée de la calibration avec l'indicateur active demandé. */
+    private static CalibrationConfig snapshot(CalibrationConfig source, boolean active) {
+        CalibrationConfig copy = new CalibrationConfig(
+                source.getName(), source.getPixelToMmRatio(), source.getCameraSetup(), source.getDescription());
+        copy.setActive(active);
+        copy.setCreatedAt(source.getCreatedAt() != null ? new Date(source.getCreatedAt().getTime()) : null);
+        return copy.freeze();
     }
 
     private void initDefaultCalibration() {
-        if (calibrations.isEmpty()) {
-            System.out.println("🎯 Création d'une calibration par défaut...");
-            CalibrationConfig defaultCalibration = new CalibrationConfig(
-                "Calibration par défaut",
-                1.0, // 1 mm/px par défaut
-                "Configuration par défaut",
-                "Calibration créée automatiquement au démarrage"
-            );
-            defaultCalibration.setActive(true);
-            // Si votre modèle a createdAt
-            try {
+        synchronized (writeLock) {
+            if (calibrations.isEmpty()) {
+                                CalibrationConfig defaultCalibration = new CalibrationConfig(
+                    "Calibration par défaut",
+                    1.0, // 1 mm/px par défaut
+                    "Configuration par défaut",
+                    "Calibration créée automatiquement au démarrage"
+                );
                 defaultCalibration.setCreatedAt(new Date());
-            } catch (Exception ignored) {}
-            calibrations.add(defaultCalibration);
-            activeCalibration = defaultCalibration;
-            System.out.println("✅ Calibration par défaut créée: " + defaultCalibration.getName());
+                publish(defaultCalibration);
+                log.info("Calibration par défaut créée: {}", defaultCalibration.getName());
+            }
         }
-        System.out.println("📊 Calibrations disponibles: " + calibrations.size());
+    }
+
+    /** Enregistre la calibration et l'active (appelé sous writeLock). */
+    private CalibrationConfig publish(CalibrationConfig config) {
+        calibrations.put(key(config.getName()), new Entry(nextOrder++, snapshot(config, false)));
+        CalibrationConfig active = snapshot(config, true);
+        activeCalibration.set(active);
+        return active;
     }
 
     /**
@@ -63,10 +150,7 @@ public class CalibrationService {
      * cameraSetup: dépend du contexte d’appel (ici on met un libellé générique, surchargez au besoin)
      */
     public CalibrationConfig createCalibration(String name, double knownWidthMm, double measuredPixels, String description) {
-        ensureInitialized();
-
-        System.out.println("🎯 Création d'une nouvelle calibration...");
-        System.out.println("📝 Paramètres: nom=" + name + ", largeur=" + knownWidthMm + "mm, pixels=" + measuredPixels);
+        log.debug("Création de calibration: nom={}, largeur={}mm, pixels={}", name, knownWidthMm, measuredPixels);
 
         // Validation
         if (name == null || name.trim().isEmpty()) {
@@ -76,15 +160,6 @@ public class CalibrationService {
             throw new IllegalArgumentException("Les valeurs de mesure doivent être positives");
         }
 
-        // Unicité du nom
-        Optional<CalibrationConfig> existing = calibrations.stream()
-            .filter(c -> c.getName().equalsIgnoreCase(name))
-            .findFirst();
-        if (existing.isPresent()) {
-            System.out.println("❌ Une calibration avec ce nom existe déjà: " + name);
-            throw new IllegalArgumentException("Une calibration avec ce nom existe déjà");
-        }
-
         // Calcul ratio
         double ratio = knownWidthMm / measuredPixels;
 
@@ -95,23 +170,27 @@ public class CalibrationService {
             "Calibration manuelle",
             description != null ? description : "Calibration créée manuellement"
         );
-        try {
-            config.setCreatedAt(new Date());
-        } catch (Exception ignored) {}
-
-        // Activer cette calibration
-        calibrations.forEach(c -> c.setActive(false));
-        config.setActive(true);
-        activeCalibration = config;
-        calibrations.add(config);
+        config.setCreatedAt(new Date());
+
+        CalibrationConfig active;
+        int total;
+        CompletableFuture<Void> pending;
+        synchronized (writeLock) {
+            // Unicité du nom: vérification et insertion dans la même section
+            if (calibrations.containsKey(key(name))) {
+                log.info("Une calibration avec ce nom existe déjà: {}", name);
+                throw new IllegalArgumentException("Une calibration avec ce nom existe déjà");
+            }
+            active = publish(config);
+            total = calibrations.size();
+            pending = record(CalibrationJournal.created(active));
+        }
+        awaitDurable(pending);
 
-        System.out.println("✅ Nouvelle calibration créée:");
-        System.out.println("  - Nom: " + config.getName());
-        System.out.println("  - Ratio: " + config.getPixelToMmRatio() + " mm/px");
-        System.out.println("  - Active: " + config.isActive());
-        System.out.println("  - Nombre total de calibrations: " + calibrations.size());
+        log.info("Nouvelle calibration active: {} ({} mm/px, {} calibrations)",
+                active.getName(), active.getPixelToMmRatio(), total);
 
-        return config;
+        return active;
     }
 
     /**
@@ -120,114 +199,120 @@ public class CalibrationService {
      * gardant un seul point de calcul de ratio.
      */
     public void updateMetadata(String name, String cameraSetup, String description) {
-        ensureInitialized();
-        CalibrationConfig c = getCalibrationByName(name);
-        if (c == null) throw new IllegalArgumentException("Calibration introuvable: " + name);
-        if (cameraSetup != null && !cameraSetup.trim().isEmpty()) {
-            c.setCameraSetup(cameraSetup.trim());
-        }
-        if (description != null && !description.trim().isEmpty()) {
-            c.setDescription(description.trim());
+        CompletableFuture<Void> pending;
+        synchronized (writeLock) {
+            Entry entry = name != null ? calibrations.get(key(name)) : null;
+            if (entry == null) throw new IllegalArgumentException("Calibration introuvable: " + name);
+            CalibrationConfig current = entry.snapshot;
+            CalibrationConfig updated = new CalibrationConfig(
+                    current.getName(), current.getPixelToMmRatio(), current.getCameraSetup(), current.getDescription());
+            updated.setCreatedAt(current.getCreatedAt());
+            if (cameraSetup != null && !cameraSetup.trim().isEmpty()) {
+                updated.setCameraSetup(cameraSetup.trim());
+            }
+            if (description != null && !description.trim().isEmpty()) {
+                updated.setDescription(description.trim());
+            }
+            calibrations.put(key(name), new Entry(entry.order, snapshot(updated, false)));
+            if (isActive(updated)) {
+                activeCalibration.set(snapshot(updated, true));
+            }
+            pending = record(CalibrationJournal.updated(current.getName(), updated.getCameraSetup(), updated.getDescription()));
         }
+        awaitDurable(pending);
     }
 
     public boolean setActiveCalibration(String name) {
-        ensureInitialized();
-
-        System.out.println("🔄 Changement de calibration active: " + name);
-
-        Optional<CalibrationConfig> newActive = calibrations.stream()
-            .filter(c -> c.getName().equalsIgnoreCase(name))
-            .findFirst();
-
-        if (newActive.isPresent()) {
-            calibrations.forEach(c -> c.setActive(false));
-            CalibrationConfig config = newActive.get();
-            config.setActive(true);
-            activeCalibration = config;
-            System.out.println("✅ Calibration active changée pour: " + name);
-            return true;
+        if (name != null) {
+            boolean found = false;
+            CompletableFuture<Void> pending = null;
+            synchronized (writeLock) {
+                Entry entry = calibrations.get(key(name));
+                if (entry != null) {
+                    activeCalibration.set(snapshot(entry.snapshot, true));
+                    pending = record(CalibrationJournal.activated(entry.snapshot.getName()));
+                    found = true;
+                }
+            }
+            if (found) {
+                awaitDurable(pending);
+                log.info("Calibration active changée pour: {}", name);
+                return true;
+            }
         }
 
-        System.out.println("❌ Calibration non trouvée: " + name);
+        log.info("Calibration non trouvée: {}", name);
         return false;
     }
 
+    /** Calibration active: une lecture volatile, sans verrou. */
     public CalibrationConfig getActiveCalibration() {
-        ensureInitialized();
-
-        if (activeCalibration == null && !calibrations.isEmpty()) {
-            activeCalibration = calibrations.get(0);
-            activeCalibration.setActive(true);
-            System.out.println("⚠️ Aucune calibration active, utilisation de la première disponible: " + activeCalibration.getName());
-        }
-        return activeCalibration;
+        return activeCalibration.get();
     }
 
     public List<CalibrationConfig> getAllCalibrations() {
-        ensureInitialized();
-
-        System.out.println("📋 Liste des calibrations (" + calibrations.size() + "):");
-        calibrations.forEach(c -> System.out.println("  - " + c.getName() + (c.isActive() ? " (active)" : "")));
-        // renvoyer une copie défensive
-        return new ArrayList<>(calibrations);
+        List<Entry> entries = new ArrayList<>(calibrations.values());
+        entries.sort(Comparator.comparingLong(e -> e.order));
+        CalibrationConfig active = activeCalibration.get();
+
+        // instantanés avec l'indicateur active du moment
+        List<CalibrationConfig> out = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            out.add(snapshot(e.snapshot, active != null && key(active.getName()).equals(key(e.snapshot.getName()))));
+        }
+        return out;
     }
 
     public double convertPixelsToMm(double pixels) {
-        ensureInitialized();
-
         CalibrationConfig calibration = getActiveCalibration();
         if (calibration == null) {
             throw new IllegalStateException("Aucune calibration active");
         }
-        double result = pixels * calibration.getPixelToMmRatio();
-        System.out.println("🔄 Conversion: " + pixels + "px = " + String.format("%.2f", result) + "mm (ratio: " + calibration.getPixelToMmRatio() + ")");
-        return result;
+        return pixels * calibration.getPixelToMmRatio();
     }
 
     public boolean deleteCalibration(String name) {
-        ensureInitialized();
-
-        System.out.println("🗑️ Tentative de suppression de la calibration: " + name);
+        if (name == null) return false;
+        CompletableFuture<Void> pending;
+        synchronized (writeLock) {
+            if (calibrations.size() <= 1) {
+                log.info("Impossible de supprimer la dernière calibration");
+                return false;
+            }
 
-        if (calibrations.size() <= 1) {
-            System.out.println("❌ Impossible de supprimer la dernière calibration");
-            return false;
-        }
+            Entry removed = calibrations.remove(key(name));
+            if (removed == null) {
+                log.info("Calibration non trouvée: {}", name);
+                return false;
+            }
 
-        Optional<CalibrationConfig> toDelete = calibrations.stream()
-            .filter(c -> c.getName().equalsIgnoreCase(name))
-            .findFirst();
-
-        if (toDelete.isPresent()) {
-            CalibrationConfig config = toDelete.get();
-            boolean wasActive = config.isActive();
-            calibrations.remove(config);
-
-            if (wasActive) {
-                if (!calibrations.isEmpty()) {
-                    calibrations.get(0).setActive(true);
-                    activeCalibration = calibrations.get(0);
-                    System.out.println("ℹ️ Nouvelle calibration active: " + activeCalibration.getName());
-                } else {
-                    activeCalibration = null;
+            if (isActive(removed.snapshot)) {
+                // La plus ancienne des calibrations restantes devient active
+                Entry first = calibrations.values().stream()
+                    .min(Comparator.comparingLong(e -> e.order))
+                    .orElse(null);
+                activeCalibration.set(first != null ? snapshot(first.snapshot, true) : null);
+                if (first != null) {
+                    log.info("Nouvelle calibration active: {}", first.snapshot.getName());
                 }
             }
-
-            System.out.println("✅ Calibration supprimée: " + name);
-            return true;
+            pending = record(CalibrationJournal.deleted(removed.snapshot.getName()));
         }
+        awaitDurable(pending);
 
-        System.out.println("❌ Calibration non trouvée: " + name);
-        return false;
+        log.info("Calibration supprimée: {}", name);
+        return true;
     }
 
     public CalibrationConfig getCalibrationByName(String name) {
-        ensureInitialized();
+        if (name == null) return null;
+        Entry entry = calibrations.get(key(name));
+        if (entry == null) return null;
+        return snapshot(entry.snapshot, isActive(entry.snapshot));
+    }
 
-        return calibrations.stream()
-            .filter(c -> c.getName().equalsIgnoreCase(name))
-            .findFirst()
-            .orElse(null);
+    private boolean isActive(CalibrationConfig config) {
+        CalibrationConfig active = activeCalibration.get();
+        return active != null && key(active.getName()).equals(key(config.getName()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,141 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.ColorSpace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Table de classement précalculée: le cube RGB est quantifié sur 6 bits par canal (64³ cellules)
+ * et chaque cellule vaut 1 si son centre est à distance ≤ tolérance de la cible dans l'espace choisi.
+ * Une table tient dans 4096 long (32 Kio); classer un pixel revient à une lecture de bit,
+ * quel que soit le coût de la conversion (HSV, Lab).
+ *
+ * Les tables sont partagées par (espace, cible, tolérance), dans un cache LRU borné:
+ * une cible échantillonnée au centre de chaque image donne souvent une couleur nouvelle.
+ * Précision: les 2 bits de poids faible sont ignorés (écart ≤ 2 niveaux par canal au centre de la cellule).
+ */
+public final class ColorLookupTable {
+
+    private static final int BITS = 6;
+    private static final int CELLS = 1 << BITS;
+    private static final int SHIFT = 8 - BITS;
+    private static final int MAX_TABLES = 256;
+
+    /** Poids de la luminosité dans la distance HSV. */
+    private static final double HSV_VALUE_WEIGHT = 0.5;
+
+    private static final Map<TableKey, long[]> TABLES = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TableKey, long[]> eldest) {
+            return size() > MAX_TABLES;
+        }
+    };
+
+    private record TableKey(ColorSpace space, int r, int g, int b, int tolerance) {}
+
+    // sRGB -> linéaire, une valeur par centre de cellule
+    private static final double[] LINEAR = new double[CELLS];
+    static {
+        for (int q = 0; q < CELLS; q++) LINEAR[q] = linearize(center(q));
+    }
+
+    private ColorLookupTable() {
+    }
+
+    /** Table de la cible, construite au premier appel puis réutilisée. */
+    public static long[] get(ColorSpace space, int r, int g, int b, int tolerance) {
+        TableKey key = new TableKey(space, r, g, b, tolerance);
+        synchronized (TABLES) {
+            long[] table = TABLES.get(key);
+            if (table != null) return table;
+        }
+        // Construction hors verrou: deux constructions concurrentes donnent la même table
+        long[] table = build(space, r, g, b, tolerance);
+        synchronized (TABLES) {
+            long[] existing = TABLES.putIfAbsent(key, table);
+            return existing != null ? existing : table;
+        }
+    }
+
+    /** Pixel au format (A)RGB empaqueté. */
+    public static boolean contains(long[] table, int argb) {
+        int idx = ((argb >>> (16 + SHIFT)) & (CELLS - 1)) << (2 * BITS)
+                | ((argb >>> (8 + SHIFT)) & (CELLS - 1)) << BITS
+                | ((argb >>> SHIFT) & (CELLS - 1));
+        return (table[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    private static long[] build(ColorSpace space, int r, int g, int b, int tolerance) {
+        long[] table = new long[CELLS * CELLS * CELLS / 64];
+        double[] target = new double[3];
+        double[] cell = new double[3];
+        coordinates(space, r, g, b, linearize(r), linearize(g), linearize(b), target);
+        double tolSq = (double) tolerance * tolerance;
+        int idx = 0;
+        for (int qr = 0; qr < CELLS; qr++) {
+            for (int qg = 0; qg < CELLS; qg++) {
+                for (int qb = 0; qb < CELLS; qb++, idx++) {
+                    coordinates(space, center(qr), center(qg), center(qb), LINEAR[qr], LINEAR[qg], LINEAR[qb], cell);
+                    double d0 = cell[0] - target[0];
+                    double d1 = cell[1] - target[1];
+                    double d2 = cell[2] - target[2];
+                    if (d0 * d0 + d1 * d1 + d2 * d2 <= tolSq) table[idx >>> 6] |= 1L << idx;
+                }
+            }
+        }
+        return table;
+    }
+
+    private static double center(int q) {
+        return (q << SHIFT) + ((1 << SHIFT) - 1) / 2.0;
+    }
+
+    /** Coordonnées euclidiennes de la couleur dans l'espace demandé (lr/lg/lb: composantes linéaires, pour Lab). */
+    private static void coordinates(ColorSpace space, double r, double g, double b,
+                                    double lr, double lg, double lb, double[] out) {
+        switch (space) {
+            case HSV: hsv(r, g, b, out); break;
+            case LAB: lab(lr, lg, lb, out); break;
+            default: out[0] = r; out[1] = g; out[2] = b;
+        }
+    }
+
+    /** Plan chromatique (saturation × direction de teinte, 0 à 255) et luminosité pondérée. */
+    private static void hsv(double r, double g, double b, double[] out) {
+        double max = Math.max(r, Math.max(g, b));
+        double min = Math.min(r, Math.min(g, b));
+        double delta = max - min;
+        double s = max > 0 ? delta / max : 0;
+        double h = 0;
+        if (delta > 0) {
+            if (max == r) h = ((g - b) / delta) % 6;
+            else if (max == g) h = (b - r) / delta + 2;
+            else h = (r - g) / delta + 4;
+            h *= Math.PI / 3;
+        }
+        out[0] = 255 * s * Math.cos(h);
+        out[1] = 255 * s * Math.sin(h);
+        out[2] = HSV_VALUE_WEIGHT * max;
+    }
+
+    /** CIELab (blanc D65) à partir des composantes sRGB linéaires. */
+    private static void lab(double r, double g, double b, double[] out) {
+        double x = (0.4124564 * r + 0.3575761 * g + 0.1804375 * b) / 0.95047;
+        double y = 0.2126729 * r + 0.7151522 * g + 0.0721750 * b;
+        double z = (0.0193339 * r + 0.1191920 * g + 0.9503041 * b) / 1.08883;
+        double fx = labF(x), fy = labF(y), fz = labF(z);
+        out[0] = 116 * fy - 16;
+        out[1] = 500 * (fx - fy);
+        out[2] = 200 * (fy - fz);
+    }
+
+    private static double labF(double t) {
+        return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+    }
+
+    private static double linearize(double channel) {
+        double c = channel / 255;
+        return c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+}
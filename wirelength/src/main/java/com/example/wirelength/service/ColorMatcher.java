@@ -0,0 +1,70 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.ColorSpace;
+
+/**
+ * Test de couleur.
+ * - RGB: distance euclidienne, distance² comparée à tolérance² (pas de sqrt par pixel)
+ * - HSV / LAB: lecture d'une table précalculée (ColorLookupTable), aucune conversion par pixel
+ */
+public final class ColorMatcher {
+
+    // Distance² entre noir et blanc: toute tolérance au-delà accepte tous les pixels
+    private static final int MAX_DISTANCE_SQ = 3 * 255 * 255;
+
+    private final int targetR;
+    private final int targetG;
+    private final int targetB;
+    private final int tolerance;
+    private final int toleranceSq;
+    private final ColorSpace colorSpace;
+    private final long[] table; // null en RGB
+
+    public ColorMatcher(int targetR, int targetG, int targetB, int tolerance) {
+        this(targetR, targetG, targetB, tolerance, ColorSpace.RGB);
+    }
+
+    public ColorMatcher(int targetR, int targetG, int targetB, int tolerance, ColorSpace colorSpace) {
+        this.targetR = targetR;
+        this.targetG = targetG;
+        this.targetB = targetB;
+        this.tolerance = tolerance;
+        // Calcul en long puis plafonné à la distance² RGB maximale: pas de débordement au-delà de 46340
+        this.toleranceSq = (int) Math.min((long) tolerance * tolerance, MAX_DISTANCE_SQ);
+        this.colorSpace = colorSpace != null ? colorSpace : ColorSpace.RGB;
+        this.table = this.colorSpace == ColorSpace.RGB
+                ? null
+                : ColorLookupTable.get(this.colorSpace, targetR, targetG, targetB, tolerance);
+    }
+
+    /** Cible = pixel central de l'image. */
+    public static ColorMatcher fromCenter(DecodedFrame frame, int tolerance) {
+        return fromPixel(frame, frame.getWidth() / 2, frame.getHeight() / 2, tolerance);
+    }
+
+    /** Cible = couleur du pixel (x, y). */
+    public static ColorMatcher fromPixel(DecodedFrame frame, int x, int y, int tolerance) {
+        return fromPixel(frame, x, y, tolerance, ColorSpace.RGB);
+    }
+
+    /** Cible = couleur du pixel (x, y), distance mesurée dans colorSpace. */
+    public static ColorMatcher fromPixel(DecodedFrame frame, int x, int y, int tolerance, ColorSpace colorSpace) {
+        int argb = frame.rgb(x, y);
+        return new ColorMatcher((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, tolerance, colorSpace);
+    }
+
+    /** Pixel au format (A)RGB empaqueté. */
+    public boolean matches(int argb) {
+        if (table != null) return ColorLookupTable.contains(table, argb);
+        int dr = ((argb >> 16) & 0xFF) - targetR;
+        int dg = ((argb >> 8) & 0xFF) - targetG;
+        int db = (argb & 0xFF) - targetB;
+        return dr * dr + dg * dg + db * db <= toleranceSq;
+    }
+
+    public int getTargetR() { return targetR; }
+    public int getTargetG() { return targetG; }
+    public int getTargetB() { return targetB; }
+    public int getTolerance() { return tolerance; }
+    public ColorSpace getColorSpace() { return colorSpace; }
+}
@@ -0,0 +1,13 @@
+package com.example.wirelength.service;
+
+/**
+ * Moteur de recherche de la composante couleur proche du centre de l'image.
+ * Chaque implémentation doit renvoyer les mêmes statistiques pour une même image et un même matcher.
+ */
+public interface ComponentDetector {
+
+    /**
+     * @return statistiques de la composante retenue, ou null si aucun pixel ne correspond près du centre
+     */
+    ComponentStats detect(DecodedFrame frame, ColorMatcher matcher, DetectionContext context);
+}
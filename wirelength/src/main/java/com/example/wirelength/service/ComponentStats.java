@@ -0,0 +1,232 @@
+package com.example.wirelength.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistiques d'une composante connexe accumulées pendant le remplissage:
+ * bbox, nombre de pixels, moments d'ordre 1 et 2, et extrémités gauche/droite de chaque ligne.
+ * Aucune liste de points n'est conservée: la PCA se calcule à partir des moments,
+ * et l'étendue sur l'axe principal à partir des extrémités de lignes
+ * (les sommets de l'enveloppe convexe sont toujours des extrémités de ligne).
+ */
+public final class ComponentStats {
+
+    private int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+    private int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+    private long count;
+    private long sumX, sumY, sumXX, sumXY, sumYY;
+
+    // Extrémités par ligne, indexées par (y - rowBase); hasRows: au moins une ligne enregistrée
+    private boolean hasRows;
+    private int rowBase;
+    private int[] rowMin = new int[0];
+    private int[] rowMax = new int[0];
+
+    /**
+     * Composante décrite par ses moments bruts (m00, m10, m01, m20, m11, m02) et son bbox.
+     * Les extrémités de lignes sont ensuite fournies par addExtremePoint.
+     */
+    public static ComponentStats fromMoments(long count, long sumX, long sumY, long sumXX, long sumXY, long sumYY,
+                                             int minX, int minY, int maxX, int maxY) {
+        ComponentStats c = new ComponentStats();
+        c.count = count;
+        c.sumX = sumX;
+        c.sumY = sumY;
+        c.sumXX = sumXX;
+        c.sumXY = sumXY;
+        c.sumYY = sumYY;
+        c.minX = minX; c.minY = minY;
+        c.maxX = maxX; c.maxY = maxY;
+        return c;
+    }
+
+    /** Point du bord de la composante: met à jour les extrémités de sa ligne sans toucher aux moments. */
+    public void addExtremePoint(int x, int y) {
+        int row = ensureRow(y);
+        if (x < rowMin[row]) rowMin[row] = x;
+        if (x > rowMax[row]) rowMax[row] = x;
+    }
+
+    /** Ajoute un pixel (x, y). */
+    public void add(int x, int y) {
+        addRun(x, x, y);
+    }
+
+    /** Ajoute un segment horizontal [x0, x1] (inclus) de la ligne y. */
+    public void addRun(int x0, int x1, int y) {
+        long n = x1 - x0 + 1L;
+        long sx = (x0 + (long) x1) * n / 2;                   // somme des x
+        long sxx = sumSquares(x1) - sumSquares(x0 - 1L);       // somme des x²
+        count += n;
+        sumX += sx;
+        sumY += n * y;
+        sumXX += sxx;
+        sumXY += sx * y;
+        sumYY += n * y * (long) y;
+
+        if (x0 < minX) minX = x0;
+        if (x1 > maxX) maxX = x1;
+        if (y < minY) minY = y;
+        if (y > maxY) maxY = y;
+
+        int row = ensureRow(y);
+        if (x0 < rowMin[row]) rowMin[row] = x0;
+        if (x1 > rowMax[row]) rowMax[row] = x1;
+    }
+
+    /** Fusionne une autre composante dans celle-ci. */
+    public void merge(ComponentStats other) {
+        if (other.count == 0) return;
+        count += other.count;
+        sumX += other.sumX;
+        sumY += other.sumY;
+        sumXX += other.sumXX;
+        sumXY += other.sumXY;
+        sumYY += other.sumYY;
+        minX = Math.min(minX, other.minX);
+        maxX = Math.max(maxX, other.maxX);
+        minY = Math.min(minY, other.minY);
+        maxY = Math.max(maxY, other.maxY);
+        for (int i = 0; i < other.rowMin.length; i++) {
+            if (other.rowMin[i] > other.rowMax[i]) continue;
+            int row = ensureRow(other.rowBase + i);
+            if (other.rowMin[i] < rowMin[row]) rowMin[row] = other.rowMin[i];
+            if (other.rowMax[i] > rowMax[row]) rowMax[row] = other.rowMax[i];
+        }
+    }
+
+    /** Décale la composante de (dx, dy): passage des coordonnées d'une région à celles de l'image. */
+    public void translate(int dx, int dy) {
+        if (count == 0) return;
+        sumXX += 2L * dx * sumX + count * dx * (long) dx;
+        sumYY += 2L * dy * sumY + count * dy * (long) dy;
+        sumXY += (long) dy * sumX + (long) dx * sumY + count * dx * (long) dy;
+        sumX += count * dx;
+        sumY += count * dy;
+        minX += dx; maxX += dx;
+        minY += dy; maxY += dy;
+        rowBase += dy;
+        for (int i = 0; i < rowMin.length; i++) {
+            if (rowMin[i] > rowMax[i]) continue;
+            rowMin[i] += dx;
+            rowMax[i] += dx;
+        }
+    }
+
+    private static long sumSquares(long k) {
+        return k <= 0 ? 0 : k * (k + 1) * (2 * k + 1) / 6;
+    }
+
+    private int ensureRow(int y) {
+        if (!hasRows) {
+            hasRows = true;
+            rowBase = y;
+            rowMin = newRows(16);
+            rowMax = new int[16];
+            Arrays.fill(rowMax, Integer.MIN_VALUE);
+        }
+        if (y < rowBase) {
+            // Agrandir d'au moins la taille actuelle (parcours en profondeur qui remonte ligne à ligne),
+            // sans descendre sous la ligne 0 au-delà du nécessaire
+            int shift = Math.max(rowBase - y, Math.min(rowBase, rowMin.length));
+            rowMin = grow(rowMin, shift, Integer.MAX_VALUE);
+            rowMax = grow(rowMax, shift, Integer.MIN_VALUE);
+            rowBase -= shift;
+        } else if (y - rowBase >= rowMin.length) {
+            int size = Math.max(y - rowBase + 1, rowMin.length * 2);
+            int old = rowMin.length;
+            rowMin = Arrays.copyOf(rowMin, size);
+            rowMax = Arrays.copyOf(rowMax, size);
+            Arrays.fill(rowMin, old, size, Integer.MAX_VALUE);
+            Arrays.fill(rowMax, old, size, Integer.MIN_VALUE);
+        }
+        return y - rowBase;
+    }
+
+    private static int[] newRows(int size) {
+        int[] rows = new int[size];
+        Arrays.fill(rows, Integer.MAX_VALUE);
+        return rows;
+    }
+
+    private static int[] grow(int[] rows, int shift, int fill) {
+        int[] out = new int[rows.length + shift];
+        Arrays.fill(out, 0, shift, fill);
+        System.arraycopy(rows, 0, out, shift, rows.length);
+        return out;
+    }
+
+    public boolean isEmpty() { return count == 0; }
+    public long getCount() { return count; }
+    public int getMinX() { return minX; }
+    public int getMinY() { return minY; }
+    public int getMaxX() { return maxX; }
+    public int getMaxY() { return maxY; }
+    public int getBboxWidth() { return Math.max(1, maxX - minX + 1); }
+    public int getBboxHeight() { return Math.max(1, maxY - minY + 1); }
+
+    /** Un pixel appartenant à la composante: extrémité gauche de sa première ligne. */
+    public int getAnchorX() { return rowMin[minY - rowBase]; }
+    public int getAnchorY() { return minY; }
+
+    /** Long côté du bbox. */
+    public int longSideByBbox() {
+        return Math.max(getBboxWidth(), getBboxHeight());
+    }
+
+    /**
+     * Estime la longueur du grand axe via PCA 2D simple (projection sur la 1ère composante).
+     * Retourne un diamètre approximatif en pixels (max - min sur axe principal).
+     */
+    public int majorAxisLength() {
+        long n = count;
+        if (n < 2) return 0;
+
+        double meanX = (double) sumX / n;
+        double meanY = (double) sumY / n;
+        double sxx = (sumXX - sumX * meanX) / n;
+        double sxy = (sumXY - sumX * meanY) / n;
+        double syy = (sumYY - sumY * meanY) / n;
+
+        // valeurs propres de [[sxx, sxy],[sxy, syy]]
+        double trace = sxx + syy;
+        double det = sxx * syy - sxy * sxy;
+        double tmp = Math.sqrt(Math.max(0, trace * trace - 4 * det));
+        double lambda1 = (trace + tmp) / 2.0; // max
+        // vecteur propre associé: (v1, 1) si sxy != 0; sinon (1,0) ou (0,1)
+        double vx, vy;
+        if (Math.abs(sxy) > 1e-9) {
+            vx = lambda1 - syy;
+            vy = sxy;
+        } else {
+            if (sxx >= syy) { vx = 1; vy = 0; } else { vx = 0; vy = 1; }
+        }
+        double norm = Math.hypot(vx, vy);
+        if (norm < 1e-9) return 0;
+        vx /= norm; vy /= norm;
+
+        // Les extrema d'une projection linéaire sont atteints aux extrémités des lignes
+        double minProj = Double.POSITIVE_INFINITY;
+        double maxProj = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < rowMin.length; i++) {
+            if (rowMin[i] > rowMax[i]) continue;
+            double dy = rowBase + i - meanY;
+            double p0 = (rowMin[i] - meanX) * vx + dy * vy;
+            double p1 = (rowMax[i] - meanX) * vx + dy * vy;
+            minProj = Math.min(minProj, Math.min(p0, p1));
+            maxProj = Math.max(maxProj, Math.max(p0, p1));
+        }
+        double diameter = maxProj - minProj; // en pixels (projection)
+        return (int) Math.round(diameter);
+    }
+
+    /** bbox au format x,y,w,h utilisé par les réponses de l'API. */
+    public Map<String, Integer> bboxMap() {
+        Map<String, Integer> bbox = new HashMap<>();
+        bbox.put("x", minX); bbox.put("y", minY);
+        bbox.put("w", getBboxWidth()); bbox.put("h", getBboxHeight());
+        return bbox;
+    }
+}
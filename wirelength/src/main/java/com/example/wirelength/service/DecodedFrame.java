@@ -0,0 +1,286 @@
+package com.example.wirelength.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Image décodée une seule fois par requête.
+ * Toutes les étapes (détection, dimensions, calibration) travaillent sur cet objet
+ * au lieu de relire le fichier uploadé.
+ *
+ * Lecture des pixels (rgb, readRow): directement dans le tableau du DataBuffer pour les dispositions
+ * courantes (octets entrelacés RGB/BGR/ABGR 8 bits sRGB, entiers RGB/ARGB empaquetés), sans passer par
+ * BufferedImage.getRGB et la conversion de ColorModel pixel par pixel. Autres dispositions: getRGB.
+ */
+public final class DecodedFrame {
+
+    private final BufferedImage image;
+    private final String sourceName;
+
+    // Position de cette image dans l'image source (décodage partiel) et dimensions de la source
+    private final int originX;
+    private final int originY;
+    private final int sourceWidth;
+    private final int sourceHeight;
+    // Décodage réduit: 1 pixel de l'image = scale × scale pixels de la source (1: pleine résolution)
+    private final int scale;
+
+    // Accès direct au tampon: bytes (octets entrelacés) ou ints (entiers empaquetés), null sinon
+    private final byte[] bytes;
+    private final int[] ints;
+    private final int base;           // index du pixel (0, 0)
+    private final int scanlineStride; // éléments par ligne
+    private final int pixelStride;    // éléments par pixel
+    private final int rOff, gOff, bOff;
+    private final boolean opaque;     // ints sans alpha: canal alpha forcé à 0xFF comme getRGB
+
+    public DecodedFrame(BufferedImage image, String sourceName) {
+        this(image, sourceName, 0, 0, image != null ? image.getWidth() : 0, image != null ? image.getHeight() : 0, 1);
+    }
+
+    private DecodedFrame(BufferedImage image, String sourceName, int originX, int originY,
+                         int sourceWidth, int sourceHeight, int scale) {
+        if (image == null) throw new IllegalArgumentException("Image requise");
+        this.image = image;
+        this.sourceName = sourceName;
+        this.originX = originX;
+        this.originY = originY;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.scale = scale;
+
+        WritableRaster raster = image.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer db = raster.getDataBuffer();
+        ColorModel cm = image.getColorModel();
+        // Raster enfant (getSubimage): le pixel (0, 0) est décalé dans le tampon parent
+        int tx = -raster.getSampleModelTranslateX();
+        int ty = -raster.getSampleModelTranslateY();
+        byte[] byteData = null;
+        int[] intData = null;
+        int start = 0, scanline = 0, stride = 0, r = 0, g = 0, b = 0;
+        boolean noAlpha = false;
+        if (db instanceof DataBufferByte byteBuffer && sm instanceof ComponentSampleModel csm
+                && cm instanceof ComponentColorModel && cm.getColorSpace().isCS_sRGB()
+                && !cm.isAlphaPremultiplied() && csm.getNumBands() >= 3 && db.getNumBanks() == 1
+                && allEqual(csm.getBankIndices(), 0) && allEqual(csm.getSampleSize(), 8)) {
+            int[] offsets = csm.getBandOffsets();
+            byteData = byteBuffer.getData();
+            scanline = csm.getScanlineStride();
+            stride = csm.getPixelStride();
+            start = db.getOffset() + ty * scanline + tx * stride;
+            r = offsets[0];
+            g = offsets[1];
+            b = offsets[2];
+        } else if (db instanceof DataBufferInt intBuffer && sm instanceof SinglePixelPackedSampleModel sppsm
+                && cm instanceof DirectColorModel dcm && cm.getColorSpace().isCS_sRGB() && !cm.isAlphaPremultiplied()
+                && dcm.getRedMask() == 0xFF0000 && dcm.getGreenMask() == 0xFF00 && dcm.getBlueMask() == 0xFF
+                && (!dcm.hasAlpha() || dcm.getAlphaMask() == 0xFF000000)) {
+            intData = intBuffer.getData();
+            scanline = sppsm.getScanlineStride();
+            stride = 1;
+            start = db.getOffset() + ty * scanline + tx;
+            noAlpha = !dcm.hasAlpha();
+        }
+        this.bytes = byteData;
+        this.ints = intData;
+        this.base = start;
+        this.scanlineStride = scanline;
+        this.pixelStride = stride;
+        this.rOff = r;
+        this.gOff = g;
+        this.bOff = b;
+        this.opaque = noAlpha;
+    }
+
+    private static boolean allEqual(int[] values, int expected) {
+        for (int v : values) if (v != expected) return false;
+        return true;
+    }
+
+    /**
+     * Décode le fichier uploadé directement depuis son flux (pas de copie via getBytes()).
+     */
+    public static DecodedFrame decode(MultipartFile file) throws IOException {
+        return decode(file, 1);
+    }
+
+    /**
+     * Décodage réduit: une ligne et une colonne sur scale (ImageReadParam.setSourceSubsampling),
+     * les autres ne sont jamais stockées. scale = 1: pleine résolution.
+     */
+    public static DecodedFrame decode(MultipartFile file, int scale) throws IOException {
+        return withReader(file, reader -> {
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (scale > 1) param.setSourceSubsampling(scale, scale, 0, 0);
+            int fullWidth = reader.getWidth(0);
+            int fullHeight = reader.getHeight(0);
+            BufferedImage image = reader.read(0, param);
+            return new DecodedFrame(image, file.getOriginalFilename(), 0, 0, fullWidth, fullHeight, scale);
+        });
+    }
+
+    /** Image décodée à l'échelle 1/scale d'une source de sourceWidth × sourceHeight pixels. */
+    public static DecodedFrame scaled(BufferedImage image, String sourceName, int scale, int sourceWidth, int sourceHeight) {
+        return new DecodedFrame(image, sourceName, 0, 0, sourceWidth, sourceHeight, scale);
+    }
+
+    /**
+     * Décode seulement la région demandée (clampée à l'image) via ImageReadParam.setSourceRegion:
+     * les lignes et colonnes hors région ne sont jamais stockées.
+     */
+    public static DecodedFrame decodeRegion(MultipartFile file, Rectangle region) throws IOException {
+        return withReader(file, reader -> {
+            int fullWidth = reader.getWidth(0);
+            int fullHeight = reader.getHeight(0);
+            Rectangle clipped = region.intersection(new Rectangle(0, 0, fullWidth, fullHeight));
+            if (clipped.isEmpty()) throw new IllegalArgumentException("bbox hors de l'image");
+
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(clipped);
+            BufferedImage image = reader.read(0, param);
+            return new DecodedFrame(image, file.getOriginalFilename(),
+                    clipped.x, clipped.y, fullWidth, fullHeight, 1);
+        });
+    }
+
+    /**
+     * Dimensions lues dans l'en-tête du fichier, sans décoder les pixels.
+     */
+    public static Dimension readDimensions(MultipartFile file) throws IOException {
+        return withReader(file, reader -> new Dimension(reader.getWidth(0), reader.getHeight(0)));
+    }
+
+    private interface ReaderTask<T> {
+        T run(ImageReader reader) throws IOException;
+    }
+
+    /**
+     * Ouvre un lecteur sur le flux de l'upload (mémoire ou fichier temporaire du conteneur).
+     * MemoryCacheImageInputStream au lieu du cache fichier d'ImageIO: pas de seconde copie
+     * de l'upload sur disque, et le lecteur en lecture avant seule peut libérer ce qu'il a consommé.
+     */
+    private static <T> T withReader(MultipartFile file, ReaderTask<T> task) throws IOException {
+        try (InputStream in = file.getInputStream();
+             ImageInputStream iis = new MemoryCacheImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) throw new IOException("Impossible de lire l'image");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                return task.run(reader);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public BufferedImage getImage() { return image; }
+    public String getSourceName() { return sourceName; }
+    public int getWidth() { return image.getWidth(); }
+    public int getHeight() { return image.getHeight(); }
+    public int getOriginX() { return originX; }
+    public int getOriginY() { return originY; }
+    public int getSourceWidth() { return sourceWidth; }
+    public int getSourceHeight() { return sourceHeight; }
+    public int getScale() { return scale; }
+
+    /**
+     * Vrai si seule une partie de l'image source a été décodée.
+     * Un décodage réduit (scale > 1) couvre toujours l'image entière.
+     */
+    public boolean isPartial() {
+        if (scale > 1) return originX > 0 || originY > 0 || (long) getWidth() * scale < sourceWidth - scale + 1;
+        return getWidth() < sourceWidth || getHeight() < sourceHeight;
+    }
+
+    /** Pixel ARGB en (x, y). */
+    public int rgb(int x, int y) {
+        if (bytes != null) {
+            int i = base + y * scanlineStride + x * pixelStride;
+            return 0xFF000000 | (bytes[i + rOff] & 0xFF) << 16 | (bytes[i + gOff] & 0xFF) << 8 | (bytes[i + bOff] & 0xFF);
+        }
+        if (ints != null) {
+            int v = ints[base + y * scanlineStride + x];
+            return opaque ? v | 0xFF000000 : v;
+        }
+        return image.getRGB(x, y);
+    }
+
+    /** Ligne y entière en ARGB empaqueté (out: au moins getWidth() éléments). */
+    public void readRow(int y, int[] out) {
+        readRow(0, y, getWidth(), out);
+    }
+
+    /** Pixels [x0, x0 + w) de la ligne y en ARGB empaqueté, lus directement dans le tampon si possible. */
+    public void readRow(int x0, int y, int w, int[] out) {
+        if (bytes != null) {
+            byte[] data = bytes;
+            int i = base + y * scanlineStride + x0 * pixelStride;
+            for (int x = 0; x < w; x++, i += pixelStride) {
+                out[x] = 0xFF000000 | (data[i + rOff] & 0xFF) << 16 | (data[i + gOff] & 0xFF) << 8 | (data[i + bOff] & 0xFF);
+            }
+        } else if (ints != null) {
+            int i = base + y * scanlineStride + x0;
+            if (opaque) {
+                for (int x = 0; x < w; x++) out[x] = ints[i + x] | 0xFF000000;
+            } else {
+                System.arraycopy(ints, i, out, 0, w);
+            }
+        } else {
+            image.getRGB(x0, y, w, 1, out, 0, w);
+        }
+    }
+
+    /** Vrai si les pixels sont lus directement dans le tampon (false: repli sur getRGB). */
+    public boolean hasDirectAccess() {
+        return bytes != null || ints != null;
+    }
+
+    /** Vue sur une région de l'image (pas de copie des pixels). */
+    public DecodedFrame crop(int x, int y, int w, int h) {
+        return new DecodedFrame(image.getSubimage(x, y, w, h), sourceName,
+                originX + x * scale, originY + y * scale, sourceWidth, sourceHeight, scale);
+    }
+
+    /**
+     * Copie réduite d'un facteur k: chaque pixel est le pixel central du bloc k×k correspondant.
+     * Pas de moyenne, pour ne pas mélanger la couleur de l'objet avec le fond sur les bords.
+     */
+    public DecodedFrame downsample(int k) {
+        int w = Math.max(1, getWidth() / k);
+        int h = Math.max(1, getHeight() / k);
+        int half = k / 2;
+        BufferedImage small = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            int sy = Math.min(getHeight() - 1, y * k + half);
+            for (int x = 0; x < w; x++) {
+                row[x] = rgb(Math.min(getWidth() - 1, x * k + half), sy);
+            }
+            small.setRGB(0, y, w, 1, row, 0, w);
+        }
+        return new DecodedFrame(small, sourceName);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.wirelength.service;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Ressources partagées mises à disposition des moteurs de détection pour une requête.
+ */
+public class DetectionContext {
+
+    private final RowBandExecutor bandExecutor;
+    private final PipelineMetrics metrics;
+    private final WorkBufferPool buffers;
+
+    // Point de départ de la recherche de composante (-1: centre de l'image)
+    private int seedX = -1;
+    private int seedY = -1;
+
+    public DetectionContext(RowBandExecutor bandExecutor) {
+        this(bandExecutor, PipelineMetrics.disabled());
+    }
+
+    public DetectionContext(RowBandExecutor bandExecutor, PipelineMetrics metrics) {
+        this(bandExecutor, metrics, WorkBufferPool.disabled());
+    }
+
+    public DetectionContext(RowBandExecutor bandExecutor, PipelineMetrics metrics, WorkBufferPool buffers) {
+        this.bandExecutor = bandExecutor;
+        this.metrics = metrics;
+        this.buffers = buffers;
+    }
+
+    /** Même contexte, recherche démarrant en (x, y). */
+    public DetectionContext withSeed(int x, int y) {
+        DetectionContext c = new DetectionContext(bandExecutor, metrics, buffers);
+        c.seedX = x;
+        c.seedY = y;
+        return c;
+    }
+
+    /** Contexte pour une copie réduite d'un facteur k de l'image. */
+    public DetectionContext scaled(int k) {
+        if (seedX < 0 || seedY < 0) return this;
+        return withSeed(seedX / k, seedY / k);
+    }
+
+    /** Pixel de départ: proche du point demandé, ou du centre à défaut. */
+    public int findSeed(int width, int height, IntPredicate matches) {
+        if (seedX < 0 || seedY < 0) return SeedSearch.nearCenter(width, height, matches);
+        return SeedSearch.near(width, height, seedX, seedY, matches);
+    }
+
+    /** Contexte minimal: tout s'exécute sur le thread appelant. */
+    public static DetectionContext sequential() {
+        return new DetectionContext(RowBandExecutor.sequential());
+    }
+
+    public RowBandExecutor getBandExecutor() { return bandExecutor; }
+    public PipelineMetrics getMetrics() { return metrics; }
+    public WorkBufferPool getBuffers() { return buffers; }
+}
@@ -0,0 +1,85 @@
+package com.example.wirelength.service;
+
+import java.util.Arrays;
+
+/**
+ * Remplissage 4-connexe sans allocation par pixel.
+ * Pile d'index int[] (agrandie au besoin), statistiques accumulées pendant le parcours.
+ * Masques et pixels visités en BitMask: un bit par pixel, set() ne touche que les lignes parcourues.
+ */
+public final class FloodFill {
+
+    private int[] stack = new int[1024];
+
+    /**
+     * Parcourt la composante du masque contenant startIdx (index y * largeur + x).
+     * Les pixels visités sont marqués dans visited (mêmes dimensions que mask, à 0 au départ).
+     */
+    public ComponentStats fill(BitMask mask, BitMask visited, int startIdx) {
+        final int width = mask.getWidth();
+        final int height = mask.getHeight();
+        ComponentStats stats = new ComponentStats();
+        int top = 0;
+        stack[top++] = startIdx;
+        visited.set(startIdx % width, startIdx / width);
+
+        while (top > 0) {
+            int idx = stack[--top];
+            int y = idx / width;
+            int x = idx - y * width;
+            stats.add(x, y);
+
+            // Agrandir une fois pour les 4 voisins potentiels
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            if (x > 0 && !visited.get(x - 1, y) && mask.get(x - 1, y)) { visited.set(x - 1, y); stack[top++] = idx - 1; }
+            if (x < width - 1 && !visited.get(x + 1, y) && mask.get(x + 1, y)) { visited.set(x + 1, y); stack[top++] = idx + 1; }
+            if (y > 0 && !visited.get(x, y - 1) && mask.get(x, y - 1)) { visited.set(x, y - 1); stack[top++] = idx - width; }
+            if (y < height - 1 && !visited.get(x, y + 1) && mask.get(x, y + 1)) { visited.set(x, y + 1); stack[top++] = idx + width; }
+        }
+        return stats;
+    }
+
+    /**
+     * Même parcours sans masque précalculé: chaque voisin est classé par le matcher
+     * la première fois qu'il est atteint. classified marque les pixels déjà testés
+     * (correspondants ou non), de sorte qu'aucun pixel n'est testé deux fois.
+     */
+    public ComponentStats fillLazy(DecodedFrame frame, ColorMatcher matcher, BitMask classified, int startIdx) {
+        final int width = frame.getWidth();
+        final int height = frame.getHeight();
+        ComponentStats stats = new ComponentStats();
+        int top = 0;
+        stack[top++] = startIdx;
+        classified.set(startIdx % width, startIdx / width);
+
+        while (top > 0) {
+            int idx = stack[--top];
+            int y = idx / width;
+            int x = idx - y * width;
+            stats.add(x, y);
+
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            if (x > 0 && !classified.get(x - 1, y)) {
+                classified.set(x - 1, y);
+                if (matcher.matches(frame.rgb(x - 1, y))) stack[top++] = idx - 1;
+            }
+            if (x < width - 1 && !classified.get(x + 1, y)) {
+                classified.set(x + 1, y);
+                if (matcher.matches(frame.rgb(x + 1, y))) stack[top++] = idx + 1;
+            }
+            if (y > 0 && !classified.get(x, y - 1)) {
+                classified.set(x, y - 1);
+                if (matcher.matches(frame.rgb(x, y - 1))) stack[top++] = idx - width;
+            }
+            if (y < height - 1 && !classified.get(x, y + 1)) {
+                classified.set(x, y + 1);
+                if (matcher.matches(frame.rgb(x, y + 1))) stack[top++] = idx + width;
+            }
+        }
+        return stats;
+    }
+}
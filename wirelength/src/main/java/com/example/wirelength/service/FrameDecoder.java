@@ -0,0 +1,15 @@
+package com.example.wirelength.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * Décodage d'un upload en DecodedFrame.
+ * scale 1: pleine résolution; 2, 4 ou 8: l'image est réduite pendant le décodage
+ * (les pixels écartés ne sont jamais stockés).
+ */
+public interface FrameDecoder {
+
+    DecodedFrame decode(MultipartFile file, int scale) throws IOException;
+}
@@ -2,13 +2,16 @@ package com.example.wirelength.service;
 
 import com.example.wirelength.model.AnalysisResult;
 import com.example.wirelength.model.CalibrationConfig;
+import com.example.wirelength.model.DetectionEngine;
+import com.example.wirelength.model.DetectionOptions;
+import com.example.wirelength.model.MeasurementStrategy;
+import com.example.wirelength.model.RegionHint;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
+import java.awt.Rectangle;
 import java.io.IOException;
 import java.util.*;
 
@@ -18,6 +21,37 @@ public class ImageAnalysisService {
     @Autowired
     private CalibrationService calibrationService;
 
+    @Autowired
+    private RowBandExecutor rowBandExecutor;
+
+    @Autowired
+    private MeasurementCache measurementCache;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private WorkBufferPool workBufferPool;
+
+    /** Marge minimale (px) autour du bbox client pour le décodage partiel. */
+    private static final int HINT_MIN_PADDING = 32;
+
+    private final ComponentDetector maskDetector = new MaskFloodFillDetector();
+    private final ComponentDetector lazyDetector = new LazyFloodFillDetector();
+    private final ComponentDetector runLengthDetector = new RunLengthDetector();
+    private final ComponentDetector openCvDetector = new OpenCvDetector();
+
+    private final FrameDecoder imageIoDecoder = new ImageIoFrameDecoder();
+    private final FrameDecoder openCvDecoder = new OpenCvFrameDecoder();
+
+    // Moteur utilisé quand la requête n'en précise pas (bfs, lazy, runs, opencv)
+    @Value("${wirelength.detection.default-engine:bfs}")
+    private String defaultEngine;
+
+    // Décodeur des uploads (imageio, opencv); le moteur opencv décode toujours avec OpenCV
+    @Value("${wirelength.decoder.backend:imageio}")
+    private String decoderBackend;
+
     public AnalysisResult analyzeImage(MultipartFile file, double barDiameterMm) throws IOException {
         AnalysisResult result = new AnalysisResult();
         result.setSuccess(true);
@@ -44,28 +78,28 @@ public class ImageAnalysisService {
 
     public CalibrationConfig calibrateFromReference(MultipartFile file, double knownWidthMm, String configName) throws IOException {
         try {
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(file.getBytes()));
-            if (image == null) throw new IllegalArgumentException("Impossible de lire l'image");
-            double referencePixelWidth = image.getWidth();
-            CalibrationConfig config = calibrationService.createCalibration(
-                configName,
-                knownWidthMm,
-                referencePixelWidth,
-                "Calibration créée automatiquement à partir de l'image " + file.getOriginalFilename()
-            );
-            return config;
-
+            return calibrateFromReference(DecodedFrame.decode(file), knownWidthMm, configName);
         } catch (IOException e) {
             throw new IOException("Erreur lors de l'analyse de l'image: " + e.getMessage());
         }
     }
 
+    public CalibrationConfig calibrateFromReference(DecodedFrame frame, double knownWidthMm, String configName) {
+        double referencePixelWidth = frame.getWidth();
+        return calibrationService.createCalibration(
+            configName,
+            knownWidthMm,
+            referencePixelWidth,
+            "Calibration créée automatiquement à partir de l'image " + frame.getSourceName()
+        );
+    }
+
     public int[] getImageDimensions(MultipartFile file) throws IOException {
-        BufferedImage image = ImageIO.read(new ByteArrayInputStream(file.getBytes()));
-        if (image != null) {
-            return new int[]{image.getWidth(), image.getHeight()};
-        }
-        throw new IOException("Image non valide");
+        return getImageDimensions(DecodedFrame.decode(file));
+    }
+
+    public int[] getImageDimensions(DecodedFrame frame) {
+        return new int[]{frame.getSourceWidth(), frame.getSourceHeight()};
     }
 
     public boolean isValidImageFormat(MultipartFile file) {
@@ -98,166 +132,121 @@ public class ImageAnalysisService {
      * Optionnel: r,g,b,tolerance. Si r/g/b sont nuls, on échantillonne au centre.
      */
     public AutoColorDetectionResult detectLongSideByColor(MultipartFile file, Integer r, Integer g, Integer b, Integer tolerance) throws IOException {
-        BufferedImage image = ImageIO.read(new ByteArrayInputStream(file.getBytes()));
-        if (image == null) throw new IOException("Impossible de lire l'image");
-
-        final int width = image.getWidth();
-        final int height = image.getHeight();
-        final int tol = (tolerance != null && tolerance > 0) ? tolerance : 100;
-
-        // Déterminer cible couleur (centre si non fournie)
-        int targetR, targetG, targetB;
-        if (r == null || g == null || b == null) {
-            int cx = width / 2;
-            int cy = height / 2;
-            int argb = image.getRGB(cx, cy);
-            targetR = (argb >> 16) & 0xFF;
-            targetG = (argb >> 8) & 0xFF;
-            targetB = (argb) & 0xFF;
-        } else {
-            targetR = r; targetG = g; targetB = b;
+        return detectLongSideByColor(DecodedFrame.decode(file), r, g, b, tolerance);
+    }
+
+    public AutoColorDetectionResult detectLongSideByColor(DecodedFrame frame, Integer r, Integer g, Integer b, Integer tolerance) {
+        return detectLongSideByColor(frame, new DetectionOptions(r, g, b, tolerance));
+    }
+
+    /**
+     * Les coordonnées du bbox renvoyé sont celles de l'image source, même si frame n'en est qu'une région.
+     * Avec un indice de région (bbox client), la recherche part du centre de l'indice au lieu du centre de l'image.
+     */
+    public AutoColorDetectionResult detectLongSideByColor(DecodedFrame frame, DetectionOptions options) {
+        DetectionContext context = new DetectionContext(rowBandExecutor, pipelineMetrics, workBufferPool);
+        int seedX = frame.getWidth() / 2;
+        int seedY = frame.getHeight() / 2;
+        RegionHint hint = options.getRegionHint();
+        if (hint != null) {
+            int scale = frame.getScale();
+            seedX = Math.max(0, Math.min(frame.getWidth() - 1, (hint.centerX() - frame.getOriginX()) / scale));
+            seedY = Math.max(0, Math.min(frame.getHeight() - 1, (hint.centerY() - frame.getOriginY()) / scale));
+            context = context.withSeed(seedX, seedY);
         }
 
-        // Construire un masque simple RGB euclidien
-        boolean[] mask = new boolean[width * height];
-        int[] rgbRow = new int[width];
-        for (int y = 0; y < height; y++) {
-            image.getRGB(0, y, width, 1, rgbRow, 0, width);
-            for (int x = 0; x < width; x++) {
-                int argb = rgbRow[x];
-                int rr = (argb >> 16) & 0xFF;
-                int gg = (argb >> 8) & 0xFF;
-                int bb = (argb) & 0xFF;
-                int dr = rr - targetR;
-                int dg = gg - targetG;
-                int dbb = bb - targetB;
-                double dist = Math.sqrt(dr * dr + dg * dg + dbb * dbb);
-                mask[y * width + x] = dist <= tol;
-            }
+        // Déterminer cible couleur (point de départ si non fournie)
+        ColorMatcher matcher = matcherFor(frame, options, seedX, seedY);
+
+        ComponentDetector detector = detectorFor(resolveEngine(options));
+        if (options.getPyramidFactor() > 1) {
+            detector = new PyramidDetector(detector, options.getPyramidFactor());
         }
+        ComponentStats comp = detector.detect(frame, matcher, context);
+        if (comp == null || comp.isEmpty()) return new AutoColorDetectionResult(false, 0, null);
+        int skeletonPx = 0;
+        if (options.getStrategy() == MeasurementStrategy.SKELETON) {
+            long t0 = System.nanoTime();
+            skeletonPx = SkeletonLength.measure(frame, matcher, comp);
+            pipelineMetrics.record(PipelineMetrics.Stage.SKELETON, t0);
+        }
+        comp.translate(frame.getOriginX(), frame.getOriginY());
+        return toDetectionResult(comp, skeletonPx);
+    }
 
-        // Trouver composante contenant (ou proche de) centre
-        int cx = width / 2;
-        int cy = height / 2;
-        int startIdx = cy * width + cx;
-        if (!mask[startIdx]) {
-            int found = -1;
-            int R = Math.max(5, Math.min(width, height) / 50);
-            outer:
-            for (int rrad = 1; rrad <= R; rrad++) {
-                for (int dy = -rrad; dy <= rrad; dy++) {
-                    for (int dx = -rrad; dx <= rrad; dx++) {
-                        int xx = cx + dx, yy = cy + dy;
-                        if (xx >= 0 && xx < width && yy >= 0 && yy < height) {
-                            int idx = yy * width + xx;
-                            if (mask[idx]) { found = idx; break outer; }
-                        }
-                    }
-                }
+    /** Couleur demandée, sinon couleur du pixel (seedX, seedY). */
+    private static ColorMatcher matcherFor(DecodedFrame frame, DetectionOptions options, int seedX, int seedY) {
+        final int tol = options.effectiveTolerance();
+        return options.hasTargetColor()
+                ? new ColorMatcher(options.getR(), options.getG(), options.getB(), tol, options.getColorSpace())
+                : ColorMatcher.fromPixel(frame, seedX, seedY, tol, options.getColorSpace());
+    }
+
+    /**
+     * Toutes les composantes d'au moins minArea pixels (plateau de plusieurs fils), en un décodage
+     * et un seul étiquetage par segments, quel que soit le moteur demandé. Sans couleur cible,
+     * la couleur est prise au centre de l'image.
+     */
+    public List<AutoAnalysis> analyzeAllObjects(MultipartFile file, DetectionOptions options, long minArea) throws IOException {
+        return analyzeAllObjects(decode(file, options), options, minArea);
+    }
+
+    public List<AutoAnalysis> analyzeAllObjects(DecodedFrame frame, DetectionOptions options, long minArea) {
+        if (minArea < 1) throw new IllegalArgumentException("minArea doit être positif");
+        ColorMatcher matcher = matcherFor(frame, options, frame.getWidth() / 2, frame.getHeight() / 2);
+
+        long t0 = System.nanoTime();
+        RunLengthLabeler labeler = RunLengthLabeler.encode(frame, matcher, rowBandExecutor);
+        pipelineMetrics.record(PipelineMetrics.Stage.MASK, t0);
+        long t1 = System.nanoTime();
+        List<ComponentStats> components = labeler.components(minArea);
+        pipelineMetrics.record(PipelineMetrics.Stage.SEARCH, t1);
+
+        List<AutoAnalysis> out = new ArrayList<>(components.size());
+        for (ComponentStats comp : components) {
+            int skeletonPx = 0;
+            if (options.getStrategy() == MeasurementStrategy.SKELETON) {
+                long t2 = System.nanoTime();
+                skeletonPx = SkeletonLength.measure(frame, matcher, comp);
+                pipelineMetrics.record(PipelineMetrics.Stage.SKELETON, t2);
             }
-            startIdx = found;
+            comp.translate(frame.getOriginX(), frame.getOriginY());
+            AutoAnalysis analysis = toAnalysis(toDetectionResult(comp, skeletonPx), frame);
+            analysis.pixelCount = comp.getCount() * frame.getScale() * frame.getScale();
+            out.add(analysis);
         }
-        if (startIdx < 0) return new AutoColorDetectionResult(false, 0, null);
-
-        // BFS composante
-        boolean[] visited = new boolean[width * height];
-        Deque<Integer> dq = new ArrayDeque<>();
-        dq.add(startIdx);
-        visited[startIdx] = true;
-        List<int[]> compPts = new ArrayList<>();
-        int minx = width, miny = height, maxx = 0, maxy = 0;
-
-        while (!dq.isEmpty()) {
-            int idx = dq.removeFirst();
-            int x = idx % width;
-            int y = idx / width;
-            compPts.add(new int[]{x, y});
-            if (x < minx) minx = x;
-            if (x > maxx) maxx = x;
-            if (y < miny) miny = y;
-            if (y > maxy) maxy = y;
-
-            int[] neigh = { idx - 1, idx + 1, idx - width, idx + width };
-            for (int n : neigh) {
-                if (n < 0 || n >= width * height) continue;
-                if (visited[n]) continue;
-                if (mask[n]) {
-                    visited[n] = true;
-                    dq.add(n);
-                }
-            }
+        return out;
+    }
+
+    private DetectionEngine resolveEngine(DetectionOptions options) {
+        if (options.getEngine() != null) return options.getEngine();
+        DetectionEngine configured = DetectionEngine.fromParam(defaultEngine);
+        return configured != null ? configured : DetectionEngine.BFS;
+    }
+
+    private ComponentDetector detectorFor(DetectionEngine engine) {
+        switch (engine) {
+            case LAZY: return lazyDetector;
+            case RUNS: return runLengthDetector;
+            case OPENCV: return openCvDetector;
+            default: return maskDetector;
         }
-        if (compPts.isEmpty()) return new AutoColorDetectionResult(false, 0, null);
+    }
 
-        // BBox
-        int bboxW = Math.max(1, maxx - minx + 1);
-        int bboxH = Math.max(1, maxy - miny + 1);
+    /** skeletonPx > 0: longueur du squelette (strategy=skeleton), sinon long côté / PCA. */
+    private AutoColorDetectionResult toDetectionResult(ComponentStats comp, int skeletonPx) {
+        if (skeletonPx > 0) return new AutoColorDetectionResult(true, skeletonPx, comp.bboxMap());
 
         // Long côté = max(bboxW, bboxH)
-        int longSideByBbox = Math.max(bboxW, bboxH);
+        int longSideByBbox = comp.longSideByBbox();
 
         // Optionnel: raffiner via PCA (approx "oriented length")
-        int longSideByPCA = estimateMajorAxisLength(compPts);
+        long t0 = System.nanoTime();
+        int longSideByPCA = comp.majorAxisLength();
+        pipelineMetrics.record(PipelineMetrics.Stage.PCA, t0);
 
         int finalPx = Math.max(longSideByBbox, longSideByPCA);
-
-        Map<String, Integer> bbox = new HashMap<>();
-        bbox.put("x", minx); bbox.put("y", miny);
-        bbox.put("w", bboxW); bbox.put("h", bboxH);
-
-        return new AutoColorDetectionResult(true, finalPx, bbox);
-    }
-
-    /**
-     * Estime la longueur du grand axe via PCA 2D simple (projection sur la 1ère composante).
-     * Retourne un diamètre approximatif en pixels (max - min sur axe principal).
-     */
-    private int estimateMajorAxisLength(List<int[]> points) {
-        int n = points.size();
-        if (n < 2) return 0;
-
-        double meanX = 0, meanY = 0;
-        for (int[] p : points) { meanX += p[0]; meanY += p[1]; }
-        meanX /= n; meanY /= n;
-
-        double sxx = 0, sxy = 0, syy = 0;
-        for (int[] p : points) {
-            double dx = p[0] - meanX;
-            double dy = p[1] - meanY;
-            sxx += dx * dx;
-            sxy += dx * dy;
-            syy += dy * dy;
-        }
-        sxx /= n; sxy /= n; syy /= n;
-
-        // valeurs propres de [[sxx, sxy],[sxy, syy]]
-        double trace = sxx + syy;
-        double det = sxx * syy - sxy * sxy;
-        double tmp = Math.sqrt(Math.max(0, trace * trace - 4 * det));
-        double lambda1 = (trace + tmp) / 2.0; // max
-        // vecteur propre associé: (v1, 1) si sxy != 0; sinon (1,0) ou (0,1)
-        double vx, vy;
-        if (Math.abs(sxy) > 1e-9) {
-            vx = lambda1 - syy;
-            vy = sxy;
-        } else {
-            if (sxx >= syy) { vx = 1; vy = 0; } else { vx = 0; vy = 1; }
-        }
-        double norm = Math.hypot(vx, vy);
-        if (norm < 1e-9) return 0;
-        vx /= norm; vy /= norm;
-
-        double minProj = Double.POSITIVE_INFINITY;
-        double maxProj = Double.NEGATIVE_INFINITY;
-        for (int[] p : points) {
-            double dx = p[0] - meanX;
-            double dy = p[1] - meanY;
-            double proj = dx * vx + dy * vy;
-            if (proj < minProj) minProj = proj;
-            if (proj > maxProj) maxProj = proj;
-        }
-        double diameter = maxProj - minProj; // en pixels (projection)
-        return (int) Math.round(diameter);
+        return new AutoColorDetectionResult(true, finalPx, comp.bboxMap());
     }
 
     // --------- Analyse automatique globale ----------
@@ -268,19 +257,103 @@ public class ImageAnalysisService {
         public Map<String, Integer> bbox;
         public int imageWidth;
         public int imageHeight;
+        public Long pixelCount; // renseigné par l'analyse multi-objets uniquement
+        public boolean regionHintUsed; // trouvé dans la région indiquée, sans reprise sur l'image entière
     }
 
     public AutoAnalysis analyzeFabricAuto(MultipartFile file, Integer r, Integer g, Integer b, Integer tolerance) throws IOException {
-        AutoColorDetectionResult det = detectLongSideByColor(file, r, g, b, tolerance);
-        BufferedImage image = ImageIO.read(new ByteArrayInputStream(file.getBytes()));
-        if (image == null) throw new IOException("Impossible de lire l'image");
+        // Un seul décodage: détection et dimensions partagent la même image
+        return analyzeFabricAuto(DecodedFrame.decode(file), r, g, b, tolerance);
+    }
 
+    /**
+     * Détection sur un upload, via le cache: un même fichier renvoyé avec les mêmes paramètres
+     * n'est ni redécodé ni réanalysé.
+     */
+    public AutoAnalysis analyzeFabricAuto(MultipartFile file, DetectionOptions options) throws IOException {
+        if (!measurementCache.isEnabled()) return analyzeUpload(file, options);
+        long t0 = System.nanoTime();
+        MeasurementCache.Key key = MeasurementCache.Key.of(file, options, resolveEngine(options));
+        pipelineMetrics.record(PipelineMetrics.Stage.READ, t0);
+        return measurementCache.get(key, () -> analyzeUpload(file, options));
+    }
+
+    /**
+     * Image d'un flux continu: jamais deux fois la même, pas de passage par le cache
+     * (l'empreinte coûterait une lecture complète pour rien).
+     */
+    public AutoAnalysis analyzeStreamFrame(MultipartFile file, DetectionOptions options) throws IOException {
+        return analyzeUpload(file, options);
+    }
+
+    private AutoAnalysis analyzeUpload(MultipartFile file, DetectionOptions options) throws IOException {
+        RegionHint hint = options.getRegionHint();
+        if (hint != null) {
+            // Décoder seulement la région indiquée par le client (+ marge)
+            int pad = Math.max(HINT_MIN_PADDING, Math.max(hint.getW(), hint.getH()) / 4);
+            Rectangle region = new Rectangle(hint.getX() - pad, hint.getY() - pad, hint.getW() + 2 * pad, hint.getH() + 2 * pad);
+            long t0 = System.nanoTime();
+            DecodedFrame partial = DecodedFrame.decodeRegion(file, region);
+            pipelineMetrics.record(PipelineMetrics.Stage.DECODE, t0);
+            pipelineMetrics.recordImage(partial);
+            AutoAnalysis out = analyzeFabricAuto(partial, options);
+            if (out.success && !touchesCutEdge(out.bbox, partial)) {
+                out.regionHintUsed = true;
+                return out;
+            }
+            // Objet absent ou coupé par la région: indice trop serré, on reprend sur l'image entière
+        }
+        return analyzeFabricAuto(decode(file, options), options);
+    }
+
+    /** Vrai si le bbox touche un bord de la région décodée qui n'est pas un bord de l'image source. */
+    private static boolean touchesCutEdge(Map<String, Integer> bbox, DecodedFrame frame) {
+        if (!frame.isPartial()) return false;
+        int x0 = frame.getOriginX(), y0 = frame.getOriginY();
+        int x1 = x0 + frame.getWidth(), y1 = y0 + frame.getHeight();
+        return (x0 > 0 && bbox.get("x") <= x0)
+                || (y0 > 0 && bbox.get("y") <= y0)
+                || (x1 < frame.getSourceWidth() && bbox.get("x") + bbox.get("w") >= x1)
+                || (y1 < frame.getSourceHeight() && bbox.get("y") + bbox.get("h") >= y1);
+    }
+
+    /**
+     * Image entière, à l'échelle demandée (decodeScale). Moteur OpenCV: décodage natif (imdecode),
+     * sinon le décodeur de la configuration.
+     */
+    private DecodedFrame decode(MultipartFile file, DetectionOptions options) throws IOException {
+        long t0 = System.nanoTime();
+        FrameDecoder decoder = resolveEngine(options) == DetectionEngine.OPENCV || "opencv".equalsIgnoreCase(decoderBackend)
+                ? openCvDecoder
+                : imageIoDecoder;
+        DecodedFrame frame = decoder.decode(file, options.getDecodeScale());
+        pipelineMetrics.record(PipelineMetrics.Stage.DECODE, t0);
+        pipelineMetrics.recordImage(frame);
+        return frame;
+    }
+
+    public AutoAnalysis analyzeFabricAuto(DecodedFrame frame, Integer r, Integer g, Integer b, Integer tolerance) {
+        return analyzeFabricAuto(frame, new DetectionOptions(r, g, b, tolerance));
+    }
+
+    public AutoAnalysis analyzeFabricAuto(DecodedFrame frame, DetectionOptions options) {
+        return toAnalysis(detectLongSideByColor(frame, options), frame);
+    }
+
+    /** Décodage réduit: longueur et bbox ramenés en pixels de l'image source. */
+    private static AutoAnalysis toAnalysis(AutoColorDetectionResult det, DecodedFrame frame) {
         AutoAnalysis out = new AutoAnalysis();
+        int scale = frame.getScale();
         out.success = det.isSuccess();
-        out.pixelLength = det.getPixelLength();
+        out.pixelLength = det.getPixelLength() * scale;
         out.bbox = det.getBbox();
-        out.imageWidth = image.getWidth();
-        out.imageHeight = image.getHeight();
+        if (scale > 1 && out.bbox != null) {
+            Map<String, Integer> bbox = new HashMap<>();
+            out.bbox.forEach((k, v) -> bbox.put(k, v * scale));
+            out.bbox = bbox;
+        }
+        out.imageWidth = frame.getSourceWidth();
+        out.imageHeight = frame.getSourceHeight();
         return out;
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.example.wirelength.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * Décodeur ImageIO (Java pur): sous-échantillonnage à la lecture pour scale > 1.
+ */
+public class ImageIoFrameDecoder implements FrameDecoder {
+
+    @Override
+    public DecodedFrame decode(MultipartFile file, int scale) throws IOException {
+        return DecodedFrame.decode(file, scale);
+    }
+}
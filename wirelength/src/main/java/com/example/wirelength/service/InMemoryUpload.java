@@ -0,0 +1,37 @@
+package com.example.wirelength.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * Image reçue hors d'une requête multipart (message WebSocket), présentée comme un upload
+ * pour passer par les mêmes décodages que les endpoints REST. Le tableau n'est pas copié.
+ */
+public final class InMemoryUpload implements MultipartFile {
+
+    private final String name;
+    private final byte[] bytes;
+
+    public InMemoryUpload(String name, byte[] bytes) {
+        this.name = name;
+        this.bytes = bytes;
+    }
+
+    @Override public String getName() { return "file"; }
+    @Override public String getOriginalFilename() { return name; }
+    @Override public String getContentType() { return null; }
+    @Override public boolean isEmpty() { return bytes.length == 0; }
+    @Override public long getSize() { return bytes.length; }
+    @Override public byte[] getBytes() { return bytes; }
+    @Override public InputStream getInputStream() { return new ByteArrayInputStream(bytes); }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.write(dest.toPath(), bytes);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.wirelength.service;
+
+/**
+ * Variante sans masque: les pixels ne sont classés que lorsque la recherche du centre
+ * ou le remplissage les atteint. Le coût suit la taille de l'objet, pas celle de l'image.
+ */
+public class LazyFloodFillDetector implements ComponentDetector {
+
+    @Override
+    public ComponentStats detect(DecodedFrame frame, ColorMatcher matcher, DetectionContext context) {
+        final int width = frame.getWidth();
+        final int height = frame.getHeight();
+
+        // Pas d'étape de masque: la classification fait partie de la recherche
+        long t0 = System.nanoTime();
+        try {
+            int startIdx = context.findSeed(width, height,
+                    idx -> matcher.matches(frame.rgb(idx % width, idx / width)));
+            if (startIdx < 0) return null;
+
+            // Pixels classés: seules les lignes atteintes par le remplissage sont à remettre à 0
+            BitMask classified = context.getBuffers().acquire(width, height);
+            try {
+                return new FloodFill().fillLazy(frame, matcher, classified, startIdx);
+            } finally {
+                context.getBuffers().release(classified);
+            }
+        } finally {
+            context.getMetrics().record(PipelineMetrics.Stage.SEARCH, t0);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.wirelength.service;
+
+/**
+ * Moteur historique: masque couleur complet, puis remplissage 4-connexe depuis le centre.
+ * Masque et pixels visités sont des BitMask pris dans le pool du contexte et rendus à la fin.
+ */
+public class MaskFloodFillDetector implements ComponentDetector {
+
+    @Override
+    public ComponentStats detect(DecodedFrame frame, ColorMatcher matcher, DetectionContext context) {
+        final int width = frame.getWidth();
+        final int height = frame.getHeight();
+
+        final WorkBufferPool buffers = context.getBuffers();
+        BitMask mask = buffers.acquire(width, height);
+        BitMask visited = null;
+        try {
+            // Construire un masque simple RGB euclidien (par bandes de lignes sur les grandes images).
+            // Chaque ligne commence sur un mot: les bandes n'écrivent jamais le même mot.
+            long t0 = System.nanoTime();
+            final long[] words = mask.words();
+            final int wpr = mask.getWordsPerRow();
+            context.getBandExecutor().mapBands(width, height, (y0, y1) -> {
+                int[] rgbRow = new int[width];
+                for (int y = y0; y < y1; y++) {
+                    frame.readRow(y, rgbRow);
+                    int row = y * wpr;
+                    for (int x0 = 0; x0 < width; x0 += 64) {
+                        long bits = 0;
+                        for (int x = x0, end = Math.min(width, x0 + 64); x < end; x++) {
+                            if (matcher.matches(rgbRow[x])) bits |= 1L << x;
+                        }
+                        words[row + (x0 >>> 6)] = bits;
+                    }
+                }
+                return null;
+            });
+            context.getMetrics().record(PipelineMetrics.Stage.MASK, t0);
+
+            // Trouver composante contenant (ou proche de) centre
+            long t1 = System.nanoTime();
+            try {
+                int startIdx = context.findSeed(width, height, idx -> mask.get(idx % width, idx / width));
+                if (startIdx < 0) return null;
+
+                // Remplissage composante (pile int[], statistiques accumulées au fil du parcours)
+                visited = buffers.acquire(width, height);
+                return new FloodFill().fill(mask, visited, startIdx);
+            } finally {
+                context.getMetrics().record(PipelineMetrics.Stage.SEARCH, t1);
+            }
+        } finally {
+            buffers.release(mask);
+            buffers.release(visited);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.ColorSpace;
+import com.example.wirelength.model.DetectionEngine;
+import com.example.wirelength.model.DetectionOptions;
+import com.example.wirelength.model.MeasurementStrategy;
+import com.example.wirelength.model.RegionHint;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Cache LRU des résultats de détection, indexé par le contenu de l'upload et les paramètres de détection.
+ * Seule la détection est conservée (longueur en pixels, bbox, dimensions): le ratio de calibration
+ * est appliqué après, un changement de calibration n'invalide donc aucune entrée.
+ * Deux requêtes identiques simultanées partagent un seul calcul.
+ */
+public final class MeasurementCache implements MeterBinder {
+
+    public interface Loader {
+        ImageAnalysisService.AutoAnalysis load() throws IOException;
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, ImageAnalysisService.AutoAnalysis> entries;
+    private final ConcurrentHashMap<Key, CompletableFuture<ImageAnalysisService.AutoAnalysis>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** maxEntries <= 0: cache désactivé (chaque appel calcule). */
+    public MeasurementCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ImageAnalysisService.AutoAnalysis> eldest) {
+                if (size() <= MeasurementCache.this.maxEntries) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    public boolean isEnabled() { return maxEntries > 0; }
+
+    /**
+     * Résultat en cache, ou calculé par loader. Si le même calcul est déjà en cours,
+     * attend son résultat au lieu de le refaire. Les erreurs ne sont pas mises en cache.
+     */
+    public ImageAnalysisService.AutoAnalysis get(Key key, Loader loader) throws IOException {
+        if (!isEnabled()) return loader.load();
+
+        ImageAnalysisService.AutoAnalysis cached = lookup(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        CompletableFuture<ImageAnalysisService.AutoAnalysis> mine = new CompletableFuture<>();
+        CompletableFuture<ImageAnalysisService.AutoAnalysis> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return await(running);
+        }
+        try {
+            // Un calcul a pu se terminer entre la lecture du cache et l'enregistrement en cours
+            ImageAnalysisService.AutoAnalysis value = lookup(key);
+            if (value != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                value = readOnly(loader.load());
+                synchronized (entries) {
+                    entries.put(key, value);
+                }
+            }
+            mine.complete(value);
+            return value;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private ImageAnalysisService.AutoAnalysis lookup(Key key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    private static ImageAnalysisService.AutoAnalysis await(CompletableFuture<ImageAnalysisService.AutoAnalysis> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Attente du calcul interrompue");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+
+    /** Copie partagée entre requêtes: bbox non modifiable. */
+    private static ImageAnalysisService.AutoAnalysis readOnly(ImageAnalysisService.AutoAnalysis analysis) {
+        ImageAnalysisService.AutoAnalysis copy = new ImageAnalysisService.AutoAnalysis();
+        copy.success = analysis.success;
+        copy.pixelLength = analysis.pixelLength;
+        copy.bbox = analysis.bbox != null ? Map.copyOf(analysis.bbox) : null;
+        copy.imageWidth = analysis.imageWidth;
+        copy.imageHeight = analysis.imageHeight;
+        copy.pixelCount = analysis.pixelCount;
+        copy.regionHintUsed = analysis.regionHintUsed;
+        return copy;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getCoalesced() { return coalesced.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("wirelength.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("wirelength.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss").register(registry);
+        FunctionCounter.builder("wirelength.cache.requests", coalesced, AtomicLong::get)
+                .tag("result", "coalesced").register(registry);
+        FunctionCounter.builder("wirelength.cache.evictions", evictions, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("wirelength.cache.size", this, MeasurementCache::size)
+                .register(registry);
+    }
+
+    /**
+     * Clé: empreinte du fichier (CRC32C et CRC32 calculés en un seul passage sur le flux, plus la taille)
+     * et tous les paramètres qui changent la détection.
+     */
+    public static final class Key {
+        private final long size;
+        private final long crc32c;
+        private final long crc32;
+        private final int r, g, b;           // -1: couleur prise au centre
+        private final int tolerance;
+        private final ColorSpace colorSpace;
+        private final MeasurementStrategy strategy;
+        private final DetectionEngine engine;
+        private final int pyramidFactor;
+        private final int decodeScale;
+        private final int hintX, hintY, hintW, hintH; // hintW = 0: pas d'indice
+
+        private Key(long size, long crc32c, long crc32, DetectionOptions options, DetectionEngine engine) {
+            this.size = size;
+            this.crc32c = crc32c;
+            this.crc32 = crc32;
+            boolean color = options.hasTargetColor();
+            this.r = color ? options.getR() : -1;
+            this.g = color ? options.getG() : -1;
+            this.b = color ? options.getB() : -1;
+            this.tolerance = options.effectiveTolerance();
+            this.colorSpace = options.getColorSpace();
+            this.strategy = options.getStrategy();
+            this.engine = engine;
+            this.pyramidFactor = options.getPyramidFactor();
+            this.decodeScale = options.getDecodeScale();
+            RegionHint hint = options.getRegionHint();
+            this.hintX = hint != null ? hint.getX() : 0;
+            this.hintY = hint != null ? hint.getY() : 0;
+            this.hintW = hint != null ? hint.getW() : 0;
+            this.hintH = hint != null ? hint.getH() : 0;
+        }
+
+        /** Lit le flux de l'upload une fois (sans le copier) pour calculer l'empreinte. */
+        public static Key of(MultipartFile file, DetectionOptions options, DetectionEngine engine) throws IOException {
+            CRC32C c1 = new CRC32C();
+            CRC32 c2 = new CRC32();
+            byte[] chunk = new byte[64 * 1024];
+            long size = 0;
+            try (InputStream in = file.getInputStream()) {
+                int n;
+                while ((n = in.read(chunk)) > 0) {
+                    c1.update(chunk, 0, n);
+                    c2.update(chunk, 0, n);
+                    size += n;
+                }
+            }
+            return new Key(size, c1.getValue(), c2.getValue(), options, engine);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key k)) return false;
+            return size == k.size && crc32c == k.crc32c && crc32 == k.crc32
+                    && r == k.r && g == k.g && b == k.b && tolerance == k.tolerance && colorSpace == k.colorSpace && strategy == k.strategy
+                    && engine == k.engine && pyramidFactor == k.pyramidFactor && decodeScale == k.decodeScale
+                    && hintX == k.hintX && hintY == k.hintY && hintW == k.hintW && hintH == k.hintH;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, crc32c, crc32, r, g, b, tolerance, colorSpace, strategy, engine, pyramidFactor, decodeScale, hintX, hintY, hintW, hintH);
+        }
+    }
+}
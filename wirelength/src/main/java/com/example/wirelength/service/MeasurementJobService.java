@@ -0,0 +1,339 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.AnalysisResult;
+import com.example.wirelength.model.CalibrationConfig;
+import com.example.wirelength.model.DetectionOptions;
+import com.example.wirelength.model.JobPriority;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mesures asynchrones (/jobs) pour les images trop longues à traiter dans le délai d'une requête
+ * (captures line-scan de 100 Mpx et plus).
+ * - L'upload est copié dans un fichier temporaire (SpilledUpload) avant la réponse: la tâche le relit
+ *   après la fin de la requête et le supprime quand elle se termine.
+ * - Pool borné de workers, file par priorité: une tâche INTERACTIVE passe devant les tâches BULK
+ *   en attente, ordre d'arrivée à priorité égale. Au-delà de queueCapacity tâches en attente: refus.
+ * - Chaque tâche réserve sa taille d'image dans le budget de pixels, comme les requêtes synchrones.
+ * - Résultats (AnalysisResult, analysisType "fabric_measurement") conservés ttl après la fin de la tâche.
+ */
+@Service
+public class MeasurementJobService implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(MeasurementJobService.class);
+
+    // Pause avant de retenter l'admission (budget de pixels épuisé)
+    private static final long ADMISSION_RETRY_MS = 50;
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    /** Tâche de mesure: état lisible sans verrou, done complété à la fin (attente longue des clients). */
+    public static final class Job {
+        private final String id;
+        private final JobPriority priority;
+        private final String imageName;
+        private final Date submittedAt = new Date();
+        private volatile Status status = Status.QUEUED;
+        private volatile Date startedAt;
+        private volatile Date finishedAt;
+        private volatile long finishedNanos;
+        private volatile AnalysisResult result;
+        private volatile String error;
+        private final CompletableFuture<Job> done = new CompletableFuture<>();
+
+        Job(String id, JobPriority priority, String imageName) {
+            this.id = id;
+            this.priority = priority;
+            this.imageName = imageName;
+        }
+
+        public String getId() { return id; }
+        public JobPriority getPriority() { return priority; }
+        public String getImageName() { return imageName; }
+        public Status getStatus() { return status; }
+        public Date getSubmittedAt() { return submittedAt; }
+        public Date getStartedAt() { return startedAt; }
+        public Date getFinishedAt() { return finishedAt; }
+        public AnalysisResult getResult() { return result; }
+        public String getError() { return error; }
+        public boolean isFinished() { return status == Status.SUCCEEDED || status == Status.FAILED; }
+    }
+
+    /** Élément de la file: priorité, puis ordre d'arrivée. */
+    private final class Task implements Runnable, Comparable<Task> {
+        final Job job;
+        final long seq;
+        final SpilledUpload upload;
+        final DetectionOptions options;
+        final CalibrationConfig calibration;
+
+        Task(Job job, long seq, SpilledUpload upload, DetectionOptions options, CalibrationConfig calibration) {
+            this.job = job;
+            this.seq = seq;
+            this.upload = upload;
+            this.options = options;
+            this.calibration = calibration;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int c = job.priority.compareTo(o.job.priority);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+
+        @Override
+        public void run() {
+            execute(this);
+        }
+    }
+
+    @Autowired
+    private ImageAnalysisService imageAnalysisService;
+
+    @Autowired
+    private PixelBudget pixelBudget;
+
+    @Value("${wirelength.jobs.workers:2}")
+    private int workers;
+
+    @Value("${wirelength.jobs.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${wirelength.jobs.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${wirelength.jobs.spill-dir:}")
+    private String spillDir;
+
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<JobPriority, AtomicInteger> queued = new EnumMap<>(JobPriority.class);
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong nextSeq = new AtomicLong();
+    private final AtomicLong lastPurge = new AtomicLong(System.nanoTime());
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private Path spillDirectory;
+    private ThreadPoolExecutor executor;
+
+    public MeasurementJobService() {
+        for (JobPriority p : JobPriority.values()) queued.put(p, new AtomicInteger());
+    }
+
+    @PostConstruct
+    void start() {
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        // File non bornée par construction (PriorityBlockingQueue): la capacité est contrôlée par pending
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "measure-job-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        spillDirectory = spillDir == null || spillDir.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "wirelength-jobs")
+                : Paths.get(spillDir);
+    }
+
+    @PreDestroy
+    void stop() {
+        // Tâches jamais démarrées: fichiers temporaires supprimés
+        for (Runnable r : executor.shutdownNow()) {
+            if (r instanceof Task task) closeQuietly(task.upload);
+        }
+    }
+
+    /**
+     * Enregistre une tâche et la met en file. La calibration est figée à la soumission.
+     * @throws RejectedExecutionException file pleine (le client peut réessayer plus tard)
+     */
+    public Job submit(MultipartFile file, DetectionOptions options, CalibrationConfig calibration, JobPriority priority)
+            throws IOException {
+        purgeExpired();
+        if (pending.incrementAndGet() > queueCapacity) {
+            pending.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("File des mesures pleine");
+        }
+        SpilledUpload upload;
+        try {
+            upload = SpilledUpload.of(file, spillDirectory);
+        } catch (IOException | RuntimeException e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+        Job job = new Job(UUID.randomUUID().toString(), priority, file.getOriginalFilename());
+        jobs.put(job.id, job);
+        queued.get(priority).incrementAndGet();
+        try {
+            executor.execute(new Task(job, nextSeq.getAndIncrement(), upload, options, calibration));
+        } catch (RejectedExecutionException e) {
+            // Arrêt en cours
+            jobs.remove(job.id);
+            queued.get(priority).decrementAndGet();
+            pending.decrementAndGet();
+            closeQuietly(upload);
+            throw e;
+        }
+        log.debug("Mesure {} en file ({}, {})", job.id, priority, job.imageName);
+        return job;
+    }
+
+    /** Tâche connue et non expirée, sinon null. */
+    public Job get(String id) {
+        purgeExpired();
+        Job job = id != null ? jobs.get(id) : null;
+        return job != null && !isExpired(job, System.nanoTime()) ? job : null;
+    }
+
+    /** Complété à la fin de la tâche, ou après waitMillis avec l'état courant (attente longue). */
+    public CompletableFuture<Job> await(Job job, long waitMillis) {
+        if (job.isFinished() || waitMillis <= 0) return CompletableFuture.completedFuture(job);
+        return job.done.copy().completeOnTimeout(job, waitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void execute(Task task) {
+        Job job = task.job;
+        queued.get(job.priority).decrementAndGet();
+        job.startedAt = new Date();
+        job.status = Status.RUNNING;
+        try (SpilledUpload upload = task.upload) {
+            AnalysisResult result;
+            try (PixelBudget.Permit permit = admit(upload)) {
+                ImageAnalysisService.AutoAnalysis analysis = imageAnalysisService.analyzeFabricAuto(upload, task.options);
+                result = toResult(analysis, task.calibration, upload.getOriginalFilename());
+            }
+            finish(job, result.isSuccess() ? Status.SUCCEEDED : Status.FAILED, result, result.isSuccess() ? null : result.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(job, Status.FAILED, null, "Mesure interrompue");
+        } catch (Exception e) {
+            log.warn("Mesure {} en échec: {}", job.id, e.getMessage());
+            finish(job, Status.FAILED, null, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Budget de pixels: une tâche de fond attend son tour aussi longtemps que nécessaire
+     * (pas de 503 possible une fois la tâche acceptée), un refus est simplement retenté.
+     */
+    private PixelBudget.Permit admit(MultipartFile file) throws IOException, InterruptedException {
+        Dimension size = DecodedFrame.readDimensions(file);
+        while (true) {
+            try {
+                return pixelBudget.acquire((long) size.width * size.height);
+            } catch (PixelBudget.BudgetExhaustedException e) {
+                TimeUnit.MILLISECONDS.sleep(ADMISSION_RETRY_MS);
+            }
+        }
+    }
+
+    private void finish(Job job, Status status, AnalysisResult result, String error) {
+        job.result = result;
+        job.error = error;
+        job.finishedAt = new Date();
+        job.finishedNanos = System.nanoTime();
+        job.status = status;
+        (status == Status.SUCCEEDED ? succeeded : failed).incrementAndGet();
+        job.done.complete(job);
+    }
+
+    /** Résultat de la mesure dans le modèle AnalysisResult (mêmes arrondis que /measure-fabric-auto). */
+    static AnalysisResult toResult(ImageAnalysisService.AutoAnalysis analysis, CalibrationConfig calibration, String imageName) {
+        AnalysisResult result = new AnalysisResult();
+        result.setAnalysisType("fabric_measurement");
+        result.setImageName(imageName);
+        result.setImageWidth(analysis.imageWidth);
+        result.setImageHeight(analysis.imageHeight);
+        result.setCalibrationUsed(calibration.getName());
+        result.setPixelRatio(calibration.getPixelToMmRatio());
+        if (!analysis.success || analysis.pixelLength <= 0) {
+            result.setSuccess(false);
+            result.setMessage("Aucun objet coloré détecté");
+            return result;
+        }
+        double px = analysis.pixelLength;
+        double mm = px * calibration.getPixelToMmRatio();
+        result.setSuccess(true);
+        result.setMessage("Mesure automatique terminée");
+        result.setLengthInPixels((double) Math.round(px));
+        result.setLengthInMm(Math.round(mm * 100.0) / 100.0);
+        result.setLengthInCm(Math.round(mm / 10.0 * 10.0) / 10.0);
+        result.setLengthInM(Math.round(mm / 1000.0 * 1000.0) / 1000.0);
+        return result;
+    }
+
+    private boolean isExpired(Job job, long now) {
+        return job.isFinished() && now - job.finishedNanos > TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /** Supprime les résultats expirés, au plus une fois par seconde (appelé par submit et get). */
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        long last = lastPurge.get();
+        if (now - last < TimeUnit.SECONDS.toNanos(1) || !lastPurge.compareAndSet(last, now)) return;
+        jobs.values().removeIf(job -> isExpired(job, now));
+    }
+
+    private static void closeQuietly(SpilledUpload upload) {
+        try {
+            upload.close();
+        } catch (IOException e) {
+            log.warn("Fichier temporaire non supprimé: {}", e.getMessage());
+        }
+    }
+
+    public int getQueuedCount(JobPriority priority) { return queued.get(priority).get(); }
+    public int getRetainedCount() { return jobs.size(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (JobPriority p : JobPriority.values()) {
+            Gauge.builder("wirelength.jobs.queued", queued.get(p), AtomicInteger::get)
+                    .description("Mesures asynchrones en attente d'un worker")
+                    .tag("priority", p.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        Gauge.builder("wirelength.jobs.retained", jobs, Map::size)
+                .description("Mesures asynchrones conservées (en cours ou résultat non expiré)")
+                .register(registry);
+        FunctionCounter.builder("wirelength.jobs.completed", succeeded, AtomicLong::get)
+                .description("Mesures asynchrones terminées").tag("status", "succeeded").register(registry);
+        FunctionCounter.builder("wirelength.jobs.completed", failed, AtomicLong::get)
+                .description("Mesures asynchrones terminées").tag("status", "failed").register(registry);
+        FunctionCounter.builder("wirelength.jobs.rejected", rejected, AtomicLong::get)
+                .description("Mesures asynchrones refusées (file pleine)").register(registry);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.ColorSpace;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.imgproc.Moments;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moteur OpenCV: masque par inRange (boîte) affiné par la distance euclidienne
+ * (HSV/Lab: masque construit par la table de ColorLookupTable),
+ * connectedComponentsWithStats (4-connexe), puis moments et contour externe de la composante retenue.
+ * Les moments et les sommets du contour alimentent ComponentStats: même résultat que les moteurs Java.
+ */
+public class OpenCvDetector implements ComponentDetector {
+
+    @Override
+    public ComponentStats detect(DecodedFrame frame, ColorMatcher matcher, DetectionContext context) {
+        OpenCvLoader.ensureLoaded();
+        final int width = frame.getWidth();
+        final int height = frame.getHeight();
+        List<Mat> mats = new ArrayList<>();
+        try {
+            long t0 = System.nanoTime();
+            Mat bgr = track(mats, OpenCvFrames.toBgrMat(frame));
+            Mat mask = track(mats, colorMask(bgr, matcher, mats));
+            context.getMetrics().record(PipelineMetrics.Stage.MASK, t0);
+
+            long t1 = System.nanoTime();
+            Mat labels = track(mats, new Mat());
+            Mat stats = track(mats, new Mat());
+            Mat centroids = track(mats, new Mat());
+            Imgproc.connectedComponentsWithStats(mask, labels, stats, centroids, 4, CvType.CV_32S);
+
+            int[] one = new int[1];
+            int startIdx = context.findSeed(width, height, idx -> {
+                labels.get(idx / width, idx % width, one);
+                return one[0] != 0;
+            });
+            if (startIdx < 0) {
+                context.getMetrics().record(PipelineMetrics.Stage.SEARCH, t1);
+                return null;
+            }
+            labels.get(startIdx / width, startIdx % width, one);
+            int label = one[0];
+
+            int[] s = new int[5];
+            stats.get(label, 0, s);
+            Rect box = new Rect(s[Imgproc.CC_STAT_LEFT], s[Imgproc.CC_STAT_TOP],
+                    s[Imgproc.CC_STAT_WIDTH], s[Imgproc.CC_STAT_HEIGHT]);
+
+            // Masque de la seule composante, limité à son bbox
+            Mat comp = track(mats, new Mat());
+            Core.compare(track(mats, labels.submat(box)), new Scalar(label), comp, Core.CMP_EQ);
+
+            Moments m = Imgproc.moments(comp, true);
+            ComponentStats result = ComponentStats.fromMoments(
+                    Math.round(m.m00), Math.round(m.m10), Math.round(m.m01),
+                    Math.round(m.m20), Math.round(m.m11), Math.round(m.m02),
+                    0, 0, box.width - 1, box.height - 1);
+
+            // Les sommets de l'enveloppe convexe sont sur le contour externe
+            List<MatOfPoint> contours = new ArrayList<>();
+            Mat hierarchy = track(mats, new Mat());
+            Imgproc.findContours(comp, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+            for (MatOfPoint contour : contours) {
+                for (Point p : contour.toArray()) {
+                    result.addExtremePoint((int) p.x, (int) p.y);
+                }
+                contour.release();
+            }
+            result.translate(box.x, box.y);
+            context.getMetrics().record(PipelineMetrics.Stage.SEARCH, t1);
+            return result;
+        } finally {
+            for (Mat mat : mats) mat.release();
+        }
+    }
+
+    /** Pixels à distance ≤ tolérance de la cible (test de boîte inRange, puis distance²). */
+    private static Mat colorMask(Mat bgr, ColorMatcher matcher, List<Mat> mats) {
+        if (matcher.getColorSpace() != ColorSpace.RGB) return lookupMask(bgr, matcher);
+        int tol = matcher.getTolerance();
+        Scalar target = new Scalar(matcher.getTargetB(), matcher.getTargetG(), matcher.getTargetR());
+        Mat box = track(mats, new Mat());
+        Core.inRange(bgr, new Scalar(target.val[0] - tol, target.val[1] - tol, target.val[2] - tol),
+                new Scalar(target.val[0] + tol, target.val[1] + tol, target.val[2] + tol), box);
+
+        Mat diff = track(mats, new Mat());
+        Core.absdiff(bgr, target, diff);
+        Mat diffF = track(mats, new Mat());
+        diff.convertTo(diffF, CvType.CV_32F);
+        Mat sq = track(mats, new Mat());
+        Core.multiply(diffF, diffF, sq);
+        Mat dist2 = track(mats, new Mat());
+        Core.transform(sq, dist2, track(mats, Mat.ones(1, 3, CvType.CV_32F)));
+        Mat sphere = track(mats, new Mat());
+        Core.compare(dist2, new Scalar((double) tol * tol), sphere, Core.CMP_LE);
+
+        Mat mask = new Mat();
+        Core.bitwise_and(box, sphere, mask);
+        return mask;
+    }
+
+    /** Masque ligne à ligne par la table du matcher (pas d'équivalent natif d'une table 3D). */
+    private static Mat lookupMask(Mat bgr, ColorMatcher matcher) {
+        int width = bgr.cols();
+        Mat mask = new Mat(bgr.rows(), width, CvType.CV_8UC1);
+        byte[] bgrRow = new byte[width * 3];
+        byte[] maskRow = new byte[width];
+        for (int y = 0; y < bgr.rows(); y++) {
+            bgr.get(y, 0, bgrRow);
+            for (int x = 0, i = 0; x < width; x++, i += 3) {
+                int argb = (bgrRow[i + 2] & 0xFF) << 16 | (bgrRow[i + 1] & 0xFF) << 8 | (bgrRow[i] & 0xFF);
+                maskRow[x] = matcher.matches(argb) ? (byte) 255 : 0;
+            }
+            mask.put(y, 0, maskRow);
+        }
+        return mask;
+    }
+
+    private static Mat track(List<Mat> mats, Mat mat) {
+        mats.add(mat);
+        return mat;
+    }
+}
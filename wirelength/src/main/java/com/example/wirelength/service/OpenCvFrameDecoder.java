@@ -0,0 +1,17 @@
+package com.example.wirelength.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * Décodeur natif (imdecode): image en TYPE_3BYTE_BGR, lue directement par les détecteurs.
+ * scale > 1: décodage JPEG réduit (IMREAD_REDUCED_COLOR_n).
+ */
+public class OpenCvFrameDecoder implements FrameDecoder {
+
+    @Override
+    public DecodedFrame decode(MultipartFile file, int scale) throws IOException {
+        return OpenCvFrames.decode(file, scale);
+    }
+}
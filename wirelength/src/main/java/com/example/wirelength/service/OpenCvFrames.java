@@ -0,0 +1,119 @@
+package com.example.wirelength.service;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Conversions entre DecodedFrame et Mat OpenCV (BGR 8 bits).
+ */
+public final class OpenCvFrames {
+
+    private OpenCvFrames() {
+    }
+
+    // Taille des blocs copiés du flux de l'upload vers le tampon natif
+    private static final int COPY_CHUNK = 64 * 1024;
+
+    /** Décodage par imdecode; l'image obtenue est en TYPE_3BYTE_BGR, même disposition mémoire que le Mat. */
+    public static DecodedFrame decode(MultipartFile file) throws IOException {
+        return decode(file, 1);
+    }
+
+    /**
+     * Décodage réduit (scale 2, 4 ou 8): IMREAD_REDUCED_COLOR_n, que le décodeur JPEG applique
+     * pendant la décompression (DCT réduite) au lieu de redimensionner l'image complète.
+     */
+    public static DecodedFrame decode(MultipartFile file, int scale) throws IOException {
+        OpenCvLoader.ensureLoaded();
+        int flags = switch (scale) {
+            case 1 -> Imgcodecs.IMREAD_COLOR;
+            case 2 -> Imgcodecs.IMREAD_REDUCED_COLOR_2;
+            case 4 -> Imgcodecs.IMREAD_REDUCED_COLOR_4;
+            case 8 -> Imgcodecs.IMREAD_REDUCED_COLOR_8;
+            default -> throw new IllegalArgumentException("scale invalide: " + scale + " (attendu: 1, 2, 4 ou 8)");
+        };
+        Mat encoded = readEncoded(file);
+        Mat bgr = Imgcodecs.imdecode(encoded, flags);
+        encoded.release();
+        try {
+            if (bgr.empty()) throw new IOException("Impossible de lire l'image");
+            BufferedImage image = new BufferedImage(bgr.cols(), bgr.rows(), BufferedImage.TYPE_3BYTE_BGR);
+            bgr.get(0, 0, ((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+            if (scale == 1) return new DecodedFrame(image, file.getOriginalFilename());
+            // Dimensions de la source: lues dans l'en-tête, sans décoder les pixels
+            // (format sans lecteur ImageIO: estimées depuis l'image réduite)
+            Dimension source;
+            try {
+                source = DecodedFrame.readDimensions(file);
+            } catch (IOException e) {
+                source = new Dimension(bgr.cols() * scale, bgr.rows() * scale);
+            }
+            return DecodedFrame.scaled(image, file.getOriginalFilename(), scale, source.width, source.height);
+        } finally {
+            bgr.release();
+        }
+    }
+
+    /**
+     * imdecode a besoin du fichier compressé d'un seul tenant: il est copié par blocs depuis le flux
+     * de l'upload dans un Mat natif, sans tableau byte[] de la taille du fichier sur le heap.
+     */
+    private static Mat readEncoded(MultipartFile file) throws IOException {
+        long size = file.getSize();
+        if (size <= 0 || size > Integer.MAX_VALUE) throw new IOException("Impossible de lire l'image");
+        Mat encoded = new Mat(1, (int) size, CvType.CV_8UC1);
+        byte[] chunk = new byte[(int) Math.min(COPY_CHUNK, size)];
+        int offset = 0;
+        try (InputStream in = file.getInputStream()) {
+            int n;
+            while (offset < size && (n = in.read(chunk, 0, (int) Math.min(chunk.length, size - offset))) > 0) {
+                encoded.put(0, offset, chunk, 0, n);
+                offset += n;
+            }
+        } catch (IOException e) {
+            encoded.release();
+            throw e;
+        }
+        if (offset < size) {
+            encoded.release();
+            throw new IOException("Upload tronqué");
+        }
+        return encoded;
+    }
+
+    /** Mat BGR de l'image. Copie directe du tampon pour les images TYPE_3BYTE_BGR non découpées. */
+    public static Mat toBgrMat(DecodedFrame frame) {
+        BufferedImage image = frame.getImage();
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        Mat mat = new Mat(height, width, CvType.CV_8UC3);
+        if (image.getType() == BufferedImage.TYPE_3BYTE_BGR && image.getRaster().getParent() == null) {
+            byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            if (data.length == width * height * 3) {
+                mat.put(0, 0, data);
+                return mat;
+            }
+        }
+        int[] rgbRow = new int[width];
+        byte[] bgrRow = new byte[width * 3];
+        for (int y = 0; y < height; y++) {
+            frame.readRow(y, rgbRow);
+            for (int x = 0, i = 0; x < width; x++) {
+                int argb = rgbRow[x];
+                bgrRow[i++] = (byte) argb;
+                bgrRow[i++] = (byte) (argb >> 8);
+                bgrRow[i++] = (byte) (argb >> 16);
+            }
+            mat.put(y, 0, bgrRow);
+        }
+        return mat;
+    }
+}
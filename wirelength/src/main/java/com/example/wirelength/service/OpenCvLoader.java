@@ -0,0 +1,48 @@
+package com.example.wirelength.service;
+
+import org.opencv.core.Core;
+
+/**
+ * Chargement paresseux de la bibliothèque native OpenCV, au premier usage du moteur OpenCV.
+ * - d'abord java.library.path (build OpenCV local, ex: -Djava.library.path=.../build/lib)
+ * - sinon la bibliothèque embarquée dans le jar org.openpnp pour la plateforme courante
+ *   (Linux x86_64/ARM, macOS, Windows)
+ */
+public final class OpenCvLoader {
+
+    private static volatile boolean loaded;
+    private static volatile RuntimeException failure;
+
+    private OpenCvLoader() {
+    }
+
+    /** Charge OpenCV si nécessaire. IllegalStateException si aucune bibliothèque n'est utilisable. */
+    public static void ensureLoaded() {
+        if (loaded) return;
+        synchronized (OpenCvLoader.class) {
+            if (loaded) return;
+            if (failure != null) throw failure;
+            try {
+                System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+            } catch (UnsatisfiedLinkError e) {
+                try {
+                    nu.pattern.OpenCV.loadLocally();
+                } catch (Throwable t) {
+                    failure = new IllegalStateException("Bibliothèque native OpenCV indisponible pour "
+                            + System.getProperty("os.name") + "/" + System.getProperty("os.arch") + ": " + t.getMessage(), t);
+                    throw failure;
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    public static boolean isAvailable() {
+        try {
+            ensureLoaded();
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+}
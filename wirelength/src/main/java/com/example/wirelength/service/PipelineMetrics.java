@@ -0,0 +1,90 @@
+package com.example.wirelength.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durées par étape de l'analyse (histogrammes Micrometer, tag stage), échecs de détection
+ * et taille des images traitées. Tant que l'objet n'est pas lié à un registre, tout enregistrement est ignoré.
+ */
+public final class PipelineMetrics implements MeterBinder {
+
+    public enum Stage {
+        READ("read"),          // lecture du flux de l'upload (empreinte, en-tête)
+        DECODE("decode"),      // décodage de l'image
+        MASK("mask"),          // classification couleur (masque, runs)
+        SEARCH("search"),      // recherche de la graine et parcours de la composante
+        PCA("pca"),            // longueur sur l'axe principal
+        SKELETON("skeleton"),  // squelette et plus long chemin (strategy=skeleton)
+        RESPONSE("response");  // construction de la réponse
+
+        private final String tag;
+
+        Stage(String tag) { this.tag = tag; }
+    }
+
+    private static final PipelineMetrics DISABLED = new PipelineMetrics();
+
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final Map<String, Counter> failures = new ConcurrentHashMap<>();
+    private final AtomicLong lastImagePixels = new AtomicLong();
+    private volatile MeterRegistry registry;
+    private volatile DistributionSummary megapixels;
+
+    /** Instance jamais liée: aucun enregistrement (tests, outils). */
+    public static PipelineMetrics disabled() { return DISABLED; }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (this == DISABLED) return;
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("wirelength.analysis.stage")
+                    .description("Durée d'une étape de l'analyse")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        megapixels = DistributionSummary.builder("wirelength.image.megapixels")
+                .description("Taille des images analysées")
+                .baseUnit("megapixels")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("wirelength.image.last.megapixels", lastImagePixels, p -> p.get() / 1_000_000.0)
+                .description("Taille de la dernière image décodée")
+                .register(registry);
+        this.registry = registry;
+    }
+
+    /** Durée de l'étape depuis startNanos (System.nanoTime()). */
+    public void record(Stage stage, long startNanos) {
+        if (registry == null) return;
+        timers.get(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordImage(DecodedFrame frame) {
+        long pixels = (long) frame.getWidth() * frame.getHeight();
+        lastImagePixels.set(pixels);
+        DistributionSummary summary = megapixels;
+        if (summary != null) summary.record(pixels / 1_000_000.0);
+    }
+
+    /** Échec de détection; reason: no_object, error, rejected... */
+    public void detectionFailure(String reason) {
+        MeterRegistry r = registry;
+        if (r == null) return;
+        failures.computeIfAbsent(reason, k -> Counter.builder("wirelength.detection.failures")
+                .description("Détections sans résultat")
+                .tag("reason", k)
+                .register(r)).increment();
+    }
+}
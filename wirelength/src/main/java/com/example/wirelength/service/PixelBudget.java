@@ -0,0 +1,107 @@
+package com.example.wirelength.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget de pixels partagé par les analyses en cours.
+ * Chaque requête réserve la taille de son image (lue dans l'en-tête) avant le décodage et la rend
+ * à la fin: image décodée, masque et tableaux de travail sont proportionnels à ce nombre de pixels.
+ * Quand le budget est épuisé, la requête attend au plus maxWaitMillis puis est refusée.
+ */
+public final class PixelBudget implements MeterBinder {
+
+    // Granularité des réservations: un permis = 1024 pixels (le Semaphore compte en int)
+    private static final int PIXELS_PER_PERMIT = 1024;
+
+    private final Semaphore permits;
+    private final int totalPermits;
+    private final long maxWaitMillis;
+    private final int retryAfterSeconds;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private volatile Timer waitTimer;
+    private volatile Counter rejectedCounter;
+
+    public PixelBudget(long totalPixels, long maxWaitMillis, int retryAfterSeconds) {
+        if (totalPixels <= 0) throw new IllegalArgumentException("Budget de pixels invalide: " + totalPixels);
+        this.totalPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, totalPixels / PIXELS_PER_PERMIT));
+        this.permits = new Semaphore(totalPermits, true);
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Réserve le budget d'une image de pixels pixels. Une image plus grande que le budget total
+     * réserve tout le budget: elle passe seule au lieu d'être refusée définitivement.
+     */
+    public Permit acquire(long pixels) throws InterruptedException {
+        int needed = (int) Math.min(totalPermits, Math.max(1, (pixels + PIXELS_PER_PERMIT - 1) / PIXELS_PER_PERMIT));
+        long start = System.nanoTime();
+        boolean ok = permits.tryAcquire(needed, maxWaitMillis, TimeUnit.MILLISECONDS);
+        Timer timer = waitTimer;
+        if (timer != null) timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!ok) {
+            rejectedCount.incrementAndGet();
+            Counter counter = rejectedCounter;
+            if (counter != null) counter.increment();
+            throw new BudgetExhaustedException(retryAfterSeconds);
+        }
+        return new Permit(needed);
+    }
+
+    public long getAvailablePixels() { return (long) permits.availablePermits() * PIXELS_PER_PERMIT; }
+    public long getTotalPixels() { return (long) totalPermits * PIXELS_PER_PERMIT; }
+    public long getRejectedCount() { return rejectedCount.get(); }
+    public int getRetryAfterSeconds() { return retryAfterSeconds; }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("wirelength.admission.pixels.available", this, PixelBudget::getAvailablePixels)
+                .description("Pixels encore disponibles dans le budget d'analyse")
+                .register(registry);
+        Gauge.builder("wirelength.admission.pixels.total", this, PixelBudget::getTotalPixels)
+                .description("Budget total de pixels d'analyse")
+                .register(registry);
+        waitTimer = Timer.builder("wirelength.admission.wait")
+                .description("Attente avant admission d'une analyse")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        rejectedCounter = Counter.builder("wirelength.admission.rejected")
+                .description("Analyses refusées faute de budget")
+                .register(registry);
+    }
+
+    /** Réservation en cours; close() rend le budget (une seule fois). */
+    public final class Permit implements AutoCloseable {
+        private final int count;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int count) { this.count = count; }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) permits.release(count);
+        }
+    }
+
+    /** Budget épuisé après l'attente maximale: à renvoyer en 503 avec Retry-After. */
+    public static final class BudgetExhaustedException extends RuntimeException {
+        private final int retryAfterSeconds;
+
+        public BudgetExhaustedException(int retryAfterSeconds) {
+            super("Serveur saturé, réessayez plus tard");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() { return retryAfterSeconds; }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.wirelength.service;
+
+/**
+ * Détection grossier-fin:
+ * 1. recherche de la composante sur une copie réduite d'un facteur k (1/k² des pixels)
+ * 2. bbox et longueur recalculés en pleine résolution, uniquement dans la région du bbox grossier élargie
+ * Si la composante touche le bord de la région (partie manquée à l'échelle réduite, fil plus fin que k px),
+ * la région est élargie autour de ce qui a été trouvé; après quelques essais, détection sur toute l'image.
+ */
+public class PyramidDetector implements ComponentDetector {
+
+    /** Nombre d'élargissements de la région avant de repasser en pleine image. */
+    private static final int MAX_ROI_GROWTH = 4;
+
+    private final ComponentDetector base;
+    private final int factor;
+
+    public PyramidDetector(ComponentDetector base, int factor) {
+        if (factor < 2) throw new IllegalArgumentException("Facteur de réduction invalide: " + factor);
+        this.base = base;
+        this.factor = factor;
+    }
+
+    @Override
+    public ComponentStats detect(DecodedFrame frame, ColorMatcher matcher, DetectionContext context) {
+        final int width = frame.getWidth();
+        final int height = frame.getHeight();
+        if (width < factor * 16 || height < factor * 16) {
+            return base.detect(frame, matcher, context);
+        }
+
+        DecodedFrame small = frame.downsample(factor);
+        DetectionContext coarseContext = context.scaled(factor);
+        ComponentStats coarse = base.detect(small, matcher, coarseContext);
+        if (coarse == null || coarse.isEmpty()) {
+            return base.detect(frame, matcher, context);
+        }
+
+        // Région pleine résolution: bbox grossier remis à l'échelle + marge de 2 blocs
+        int pad = 2 * factor;
+        int x0 = Math.max(0, coarse.getMinX() * factor - pad);
+        int y0 = Math.max(0, coarse.getMinY() * factor - pad);
+        int x1 = Math.min(width, (coarse.getMaxX() + 1) * factor + pad);
+        int y1 = Math.min(height, (coarse.getMaxY() + 1) * factor + pad);
+
+        // Graine: un pixel échantillonné de la composante grossière (il correspond aussi en pleine résolution)
+        int seedX = coarse.getAnchorX() * factor + factor / 2;
+        int seedY = coarse.getAnchorY() * factor + factor / 2;
+
+        for (int attempt = 0; attempt < MAX_ROI_GROWTH; attempt++) {
+            DecodedFrame roi = frame.crop(x0, y0, x1 - x0, y1 - y0);
+            ComponentStats fine = base.detect(roi, matcher, context.withSeed(seedX - x0, seedY - y0));
+            if (fine == null || fine.isEmpty()) break;
+            boolean cut = touchesCutEdge(fine, x0, y0, x1, y1, width, height);
+            fine.translate(x0, y0);
+            if (!cut) return fine;
+
+            // La composante déborde (partie perdue à l'échelle réduite): élargir autour de ce qui a été trouvé
+            pad = Math.max(pad * 2, fine.longSideByBbox());
+            x0 = Math.max(0, fine.getMinX() - pad);
+            y0 = Math.max(0, fine.getMinY() - pad);
+            x1 = Math.min(width, fine.getMaxX() + 1 + pad);
+            y1 = Math.min(height, fine.getMaxY() + 1 + pad);
+        }
+        return base.detect(frame, matcher, context);
+    }
+
+    /** Vrai si la composante touche un bord de la région qui n'est pas un bord de l'image. */
+    private static boolean touchesCutEdge(ComponentStats c, int x0, int y0, int x1, int y1, int width, int height) {
+        return (x0 > 0 && c.getMinX() == 0)
+                || (y0 > 0 && c.getMinY() == 0)
+                || (x1 < width && c.getMaxX() == x1 - x0 - 1)
+                || (y1 < height && c.getMaxY() == y1 - y0 - 1);
+    }
+}
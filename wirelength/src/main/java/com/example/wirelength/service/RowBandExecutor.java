@@ -0,0 +1,80 @@
+package com.example.wirelength.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Découpe le travail par bandes de lignes sur un ForkJoinPool pour les grandes images.
+ * - Sous le seuil de pixels (ou pool déjà occupé par d'autres requêtes): une seule bande, sur le thread appelant
+ * - Les résultats sont renvoyés dans l'ordre des bandes, la fusion est donc déterministe
+ */
+public class RowBandExecutor {
+
+    /** Nombre minimal de lignes par bande (évite des tâches trop petites). */
+    private static final int MIN_BAND_ROWS = 32;
+
+    private final ForkJoinPool pool;
+    private final long thresholdPixels;
+
+    public RowBandExecutor(ForkJoinPool pool, long thresholdPixels) {
+        this.pool = pool;
+        this.thresholdPixels = thresholdPixels;
+    }
+
+    /** Exécution toujours séquentielle (tests, outils). */
+    public static RowBandExecutor sequential() {
+        return new RowBandExecutor(null, Long.MAX_VALUE);
+    }
+
+    /** Travail d'une bande [y0, y1). */
+    @FunctionalInterface
+    public interface BandTask<T> {
+        T run(int y0, int y1);
+    }
+
+    public boolean isParallel(int width, int height) {
+        if (pool == null || (long) width * height < thresholdPixels || height < 2 * MIN_BAND_ROWS) return false;
+        // Sous charge, le pool est déjà occupé: rester séquentiel pour ne pas dégrader le débit global
+        return pool.getQueuedSubmissionCount() == 0 && pool.getActiveThreadCount() < pool.getParallelism();
+    }
+
+    /**
+     * Applique task à chaque bande et renvoie les résultats dans l'ordre des lignes.
+     */
+    public <T> List<T> mapBands(int width, int height, BandTask<T> task) {
+        if (!isParallel(width, height)) {
+            return Collections.singletonList(task.run(0, height));
+        }
+        int bands = Math.min(pool.getParallelism() * 4, height / MIN_BAND_ROWS);
+        int rowsPerBand = (height + bands - 1) / bands;
+        List<Callable<T>> tasks = new ArrayList<>(bands);
+        for (int y0 = 0; y0 < height; y0 += rowsPerBand) {
+            final int from = y0;
+            final int to = Math.min(height, y0 + rowsPerBand);
+            tasks.add(() -> task.run(from, to));
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> f : pool.invokeAll(tasks)) {
+                results.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Détection interrompue", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+        return results;
+    }
+
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.wirelength.service;
+
+/**
+ * Moteur par segments: codage des lignes en runs, union-find, puis statistiques
+ * de la composante qui contient (ou est proche du) centre.
+ */
+public class RunLengthDetector implements ComponentDetector {
+
+    @Override
+    public ComponentStats detect(DecodedFrame frame, ColorMatcher matcher, DetectionContext context) {
+        long t0 = System.nanoTime();
+        RunLengthLabeler labeler = RunLengthLabeler.encode(frame, matcher, context.getBandExecutor());
+        context.getMetrics().record(PipelineMetrics.Stage.MASK, t0);
+        final int width = frame.getWidth();
+
+        long t1 = System.nanoTime();
+        try {
+            int startIdx = context.findSeed(width, frame.getHeight(),
+                    idx -> labeler.runAt(idx % width, idx / width) >= 0);
+            if (startIdx < 0) return null;
+            return labeler.componentOf(labeler.runAt(startIdx % width, startIdx / width));
+        } finally {
+            context.getMetrics().record(PipelineMetrics.Stage.SEARCH, t1);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.wirelength.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Étiquetage par segments (runs) horizontaux.
+ * Chaque ligne du masque couleur est codée en segments [x0, x1], les segments qui se
+ * chevauchent entre deux lignes consécutives sont fusionnés par union-find (4-connexité).
+ * Le travail est proportionnel au nombre de segments, pas au nombre de pixels de l'objet.
+ */
+public final class RunLengthLabeler {
+
+    private final int width;
+    private final int height;
+
+    // Segments, triés par ligne puis par x; les segments de la ligne y sont [rowStart[y], rowStart[y+1])
+    private int[] runX0 = new int[1024];
+    private int[] runX1 = new int[1024];
+    private final int[] rowStart;
+    private int runCount;
+    private int nextRow;
+
+    private int[] parent;
+
+    public RunLengthLabeler(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.rowStart = new int[height + 1];
+    }
+
+    /**
+     * Code toutes les lignes de l'image puis étiquette les segments.
+     * Sur les grandes images, chaque bande de lignes est codée en parallèle puis
+     * les bandes sont concaténées dans l'ordre: le résultat est identique au codage séquentiel.
+     */
+    public static RunLengthLabeler encode(DecodedFrame frame, ColorMatcher matcher, RowBandExecutor bands) {
+        final int width = frame.getWidth();
+        final int height = frame.getHeight();
+        List<RunLengthLabeler> parts = bands.mapBands(width, height, (y0, y1) -> {
+            RunLengthLabeler part = new RunLengthLabeler(width, y1 - y0);
+            int[] rgbRow = new int[width];
+            for (int y = y0; y < y1; y++) {
+                frame.readRow(y, rgbRow);
+                part.encodeRow(y - y0, rgbRow, matcher);
+            }
+            return part;
+        });
+        RunLengthLabeler labeler = parts.size() == 1 ? parts.get(0) : concat(width, height, parts);
+        labeler.label();
+        return labeler;
+    }
+
+    /** Concatène des bandes codées (dans l'ordre des lignes) en un seul étiqueteur. */
+    private static RunLengthLabeler concat(int width, int height, List<RunLengthLabeler> parts) {
+        RunLengthLabeler out = new RunLengthLabeler(width, height);
+        int total = 0;
+        for (RunLengthLabeler p : parts) total += p.runCount;
+        out.runX0 = new int[Math.max(1, total)];
+        out.runX1 = new int[Math.max(1, total)];
+        for (RunLengthLabeler p : parts) {
+            System.arraycopy(p.runX0, 0, out.runX0, out.runCount, p.runCount);
+            System.arraycopy(p.runX1, 0, out.runX1, out.runCount, p.runCount);
+            for (int y = 0; y < p.height; y++) {
+                out.rowStart[out.nextRow + y] = out.runCount + p.rowStart[y];
+            }
+            out.runCount += p.runCount;
+            out.nextRow += p.height;
+        }
+        out.rowStart[out.nextRow] = out.runCount;
+        return out;
+    }
+
+    /** Ajoute les segments de la ligne y. Les lignes doivent être fournies dans l'ordre. */
+    public void encodeRow(int y, int[] argbRow, ColorMatcher matcher) {
+        if (y != nextRow) throw new IllegalStateException("Ligne attendue " + nextRow + ", reçue " + y);
+        rowStart[y] = runCount;
+        int x = 0;
+        while (x < width) {
+            while (x < width && !matcher.matches(argbRow[x])) x++;
+            if (x >= width) break;
+            int start = x;
+            while (x < width && matcher.matches(argbRow[x])) x++;
+            addRun(start, x - 1);
+        }
+        nextRow = y + 1;
+        rowStart[nextRow] = runCount;
+    }
+
+    private void addRun(int x0, int x1) {
+        if (runCount == runX0.length) {
+            runX0 = Arrays.copyOf(runX0, runCount * 2);
+            runX1 = Arrays.copyOf(runX1, runCount * 2);
+        }
+        runX0[runCount] = x0;
+        runX1[runCount] = x1;
+        runCount++;
+    }
+
+    /** Fusionne les segments qui se chevauchent entre lignes consécutives. */
+    public void label() {
+        if (nextRow != height) throw new IllegalStateException("Lignes manquantes: " + nextRow + "/" + height);
+        parent = new int[runCount];
+        for (int i = 0; i < runCount; i++) parent[i] = i;
+        for (int y = 1; y < height; y++) {
+            int i = rowStart[y - 1], iEnd = rowStart[y];
+            int j = rowStart[y], jEnd = rowStart[y + 1];
+            while (i < iEnd && j < jEnd) {
+                if (runX1[i] >= runX0[j] && runX1[j] >= runX0[i]) union(i, j);
+                if (runX1[i] < runX1[j]) i++; else j++;
+            }
+        }
+    }
+
+    private int find(int run) {
+        while (parent[run] != run) {
+            parent[run] = parent[parent[run]];
+            run = parent[run];
+        }
+        return run;
+    }
+
+    private void union(int a, int b) {
+        int ra = find(a), rb = find(b);
+        if (ra == rb) return;
+        // La plus petite racine gagne: étiquetage déterministe
+        if (ra < rb) parent[rb] = ra; else parent[ra] = rb;
+    }
+
+    /** Index du segment couvrant (x, y), -1 si le pixel n'est pas dans le masque. */
+    public int runAt(int x, int y) {
+        int lo = rowStart[y], hi = rowStart[y + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (runX1[mid] < x) lo = mid + 1;
+            else if (runX0[mid] > x) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /** Statistiques de la composante contenant le segment donné. */
+    public ComponentStats componentOf(int run) {
+        int root = find(run);
+        ComponentStats stats = new ComponentStats();
+        for (int y = 0; y < height; y++) {
+            for (int i = rowStart[y], end = rowStart[y + 1]; i < end; i++) {
+                if (find(i) == root) stats.addRun(runX0[i], runX1[i], y);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Statistiques de toutes les composantes d'au moins minArea pixels, en un seul parcours des segments.
+     * Ordre: première ligne de chaque composante, de haut en bas puis de gauche à droite.
+     */
+    public List<ComponentStats> components(long minArea) {
+        ComponentStats[] byRoot = new ComponentStats[runCount];
+        List<ComponentStats> ordered = new ArrayList<>();
+        for (int y = 0; y < height; y++) {
+            for (int i = rowStart[y], end = rowStart[y + 1]; i < end; i++) {
+                int root = find(i);
+                ComponentStats stats = byRoot[root];
+                if (stats == null) {
+                    stats = byRoot[root] = new ComponentStats();
+                    ordered.add(stats);
+                }
+                stats.addRun(runX0[i], runX1[i], y);
+            }
+        }
+        ordered.removeIf(c -> c.getCount() < minArea);
+        return ordered;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getRunCount() { return runCount; }
+}
@@ -0,0 +1,44 @@
+package com.example.wirelength.service;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Recherche du pixel de départ de la composante.
+ */
+public final class SeedSearch {
+
+    private SeedSearch() {
+    }
+
+    /**
+     * Index du pixel central s'il correspond, sinon du premier pixel correspondant
+     * sur des carrés concentriques de rayon croissant (max(5, min(w,h)/50)). -1 si aucun.
+     */
+    public static int nearCenter(int width, int height, IntPredicate matches) {
+        return near(width, height, width / 2, height / 2, matches);
+    }
+
+    /** Même recherche autour de (cx, cy). */
+    public static int near(int width, int height, int cx, int cy, IntPredicate matches) {
+        cx = Math.max(0, Math.min(width - 1, cx));
+        cy = Math.max(0, Math.min(height - 1, cy));
+        int startIdx = cy * width + cx;
+        if (matches.test(startIdx)) return startIdx;
+
+        int R = Math.max(5, Math.min(width, height) / 50);
+        for (int rrad = 1; rrad <= R; rrad++) {
+            for (int dy = -rrad; dy <= rrad; dy++) {
+                // L'intérieur du carré a déjà été testé aux rayons précédents
+                int step = (dy == -rrad || dy == rrad) ? 1 : 2 * rrad;
+                for (int dx = -rrad; dx <= rrad; dx += step) {
+                    int xx = cx + dx, yy = cy + dy;
+                    if (xx >= 0 && xx < width && yy >= 0 && yy < height) {
+                        int idx = yy * width + xx;
+                        if (matches.test(idx)) return idx;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+}
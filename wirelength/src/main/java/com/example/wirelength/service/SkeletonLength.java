@@ -0,0 +1,285 @@
+package com.example.wirelength.service;
+
+import java.util.Arrays;
+
+/**
+ * Longueur d'un objet courbe (fil enroulé, plié): squelette d'un pixel puis plus long chemin.
+ *
+ * 1. Masque binaire du bbox de la composante (bord d'un pixel vide), réduit à la seule composante
+ *    détectée (remplissage 4-connexe depuis son point d'ancrage).
+ * 2. Amincissement de Zhang-Suen calculé par mots de 64 bits: les 8 voisins d'un mot sont obtenus
+ *    par décalage des lignes voisines, et les conditions (nombre de voisins, transitions 0→1)
+ *    sont évaluées pour 64 pixels à la fois par opérations logiques.
+ * 3. Plus long chemin du squelette (graphe 8-connexe, pas droit = 1, pas diagonal = √2) par double
+ *    parcours de Dijkstra: le point le plus éloigné d'un point quelconque est une extrémité, la plus
+ *    grande distance depuis celle-ci est la longueur (exacte pour un squelette sans boucle).
+ *    Les pas de 1 et √2 sont exacts à 0°, 45° et 90°; sur une courbe, la longueur est surestimée d'environ 5 %.
+ * 4. L'amincissement raccourcit chaque extrémité d'environ une demi-épaisseur: l'épaisseur moyenne
+ *    (surface / longueur) est ajoutée au chemin.
+ */
+public final class SkeletonLength {
+
+    private static final double SQRT2 = Math.sqrt(2);
+
+    private SkeletonLength() {
+    }
+
+    /**
+     * Longueur en pixels de la composante comp (coordonnées de frame), 0 si elle ne peut être calculée.
+     */
+    public static int measure(DecodedFrame frame, ColorMatcher matcher, ComponentStats comp) {
+        if (comp == null || comp.isEmpty()) return 0;
+        BitMask component = isolate(colorMask(frame, matcher, comp),
+                comp.getAnchorX() - comp.getMinX() + 1, comp.getAnchorY() - comp.getMinY() + 1);
+        if (component == null) return 0;
+        long area = component.cardinality();
+        thin(component);
+        double path = longestPath(component);
+        return (int) Math.round(path + area / (path + 1));
+    }
+
+    /** Pixels correspondants du bbox de comp, décalés de (1, 1): le bord du masque reste vide. */
+    private static BitMask colorMask(DecodedFrame frame, ColorMatcher matcher, ComponentStats comp) {
+        int x0 = comp.getMinX();
+        int y0 = comp.getMinY();
+        int w = comp.getBboxWidth();
+        int h = comp.getBboxHeight();
+        BitMask mask = new BitMask(w + 2, h + 2);
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            frame.readRow(x0, y0 + y, w, row);
+            for (int x = 0; x < w; x++) {
+                if (matcher.matches(row[x])) mask.set(x + 1, y + 1);
+            }
+        }
+        return mask;
+    }
+
+    /** Composante 4-connexe de mask contenant (x, y); null si ce pixel n'est pas dans le masque. */
+    static BitMask isolate(BitMask mask, int x, int y) {
+        if (!mask.get(x, y)) return null;
+        int width = mask.getWidth();
+        BitMask out = new BitMask(width, mask.getHeight());
+        int[] stack = new int[1024];
+        int top = 0;
+        stack[top++] = y * width + x;
+        out.set(x, y);
+        while (top > 0) {
+            int idx = stack[--top];
+            int py = idx / width;
+            int px = idx - py * width;
+            if (top + 4 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            // Le bord du masque est vide: pas de test de limites
+            if (mask.get(px - 1, py) && !out.get(px - 1, py)) { out.set(px - 1, py); stack[top++] = idx - 1; }
+            if (mask.get(px + 1, py) && !out.get(px + 1, py)) { out.set(px + 1, py); stack[top++] = idx + 1; }
+            if (mask.get(px, py - 1) && !out.get(px, py - 1)) { out.set(px, py - 1); stack[top++] = idx - width; }
+            if (mask.get(px, py + 1) && !out.get(px, py + 1)) { out.set(px, py + 1); stack[top++] = idx + width; }
+        }
+        return out;
+    }
+
+    /**
+     * Amincissement de Zhang-Suen en place. Chaque sous-itération lit l'état précédent en entier
+     * (double tampon) et supprime en une fois tous les pixels qui remplissent ses conditions.
+     */
+    static void thin(BitMask mask) {
+        long[] current = mask.words();
+        long[] next = current.clone();
+        int wpr = mask.getWordsPerRow();
+        int height = mask.getHeight();
+        boolean changed = true;
+        while (changed) {
+            changed = subIteration(current, next, wpr, height, true);
+            System.arraycopy(next, 0, current, 0, current.length);
+            changed |= subIteration(current, next, wpr, height, false);
+            System.arraycopy(next, 0, current, 0, current.length);
+        }
+    }
+
+    private static boolean subIteration(long[] src, long[] dst, int wpr, int height, boolean first) {
+        boolean changed = false;
+        long[] ring = new long[9]; // voisins p2..p9 puis p2, décalés à la position du pixel
+        // Lignes 0 et height-1: bord vide
+        for (int r = 1; r < height - 1; r++) {
+            int row = r * wpr;
+            for (int i = 0; i < wpr; i++) {
+                long p = src[row + i];
+                if (p == 0) continue;
+                int up = row - wpr;
+                int down = row + wpr;
+                long p2 = src[up + i];
+                long p4 = east(src, row, i, wpr);
+                long p6 = src[down + i];
+                long p8 = west(src, row, i);
+                ring[0] = p2;
+                ring[1] = east(src, up, i, wpr);
+                ring[2] = p4;
+                ring[3] = east(src, down, i, wpr);
+                ring[4] = p6;
+                ring[5] = west(src, down, i);
+                ring[6] = p8;
+                ring[7] = west(src, up, i);
+                ring[8] = p2;
+
+                // Nombre de voisins entre 2 et 6: compteurs « au moins k » par plan de bits
+                long ge1 = 0, ge2 = 0, ge3 = 0, ge4 = 0, ge5 = 0, ge6 = 0, ge7 = 0;
+                // Exactement une transition 0→1 dans la séquence p2, p3, ..., p9, p2
+                long once = 0, twice = 0;
+                for (int k = 0; k < 8; k++) {
+                    long n = ring[k];
+                    ge7 |= ge6 & n;
+                    ge6 |= ge5 & n;
+                    ge5 |= ge4 & n;
+                    ge4 |= ge3 & n;
+                    ge3 |= ge2 & n;
+                    ge2 |= ge1 & n;
+                    ge1 |= n;
+                    long t = ~n & ring[k + 1];
+                    twice |= once & t;
+                    once |= t;
+                }
+                long neighbours = ge2 & ~ge7;
+                long oneTransition = once & ~twice;
+
+                long keep = first
+                        ? (p2 & p4 & p6) | (p4 & p6 & p8)
+                        : (p2 & p4 & p8) | (p2 & p6 & p8);
+                long delete = p & neighbours & oneTransition & ~keep;
+                dst[row + i] = p & ~delete;
+                if (delete != 0) changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /** Voisin de droite (x + 1) ramené à la position x. */
+    private static long east(long[] words, int row, int i, int wpr) {
+        long w = words[row + i] >>> 1;
+        return i + 1 < wpr ? w | (words[row + i + 1] << 63) : w;
+    }
+
+    /** Voisin de gauche (x - 1) ramené à la position x. */
+    private static long west(long[] words, int row, int i) {
+        long w = words[row + i] << 1;
+        return i > 0 ? w | (words[row + i - 1] >>> 63) : w;
+    }
+
+    /** Longueur du plus long chemin du squelette (distance entre centres de pixels). */
+    static double longestPath(BitMask skeleton) {
+        Graph graph = new Graph(skeleton);
+        if (graph.size() < 2) return 0;
+        double[] dist = new double[graph.size()];
+        int end = graph.farthest(0, dist);
+        int other = graph.farthest(end, dist);
+        return dist[other];
+    }
+
+    /**
+     * Pixels du squelette numérotés par rang dans le masque: rang = bits à 1 avant le mot
+     * (cumul précalculé) + bits à 1 avant le pixel dans son mot. Pas de table pixel → index.
+     */
+    private static final class Graph {
+        private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+        private static final int[] DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+        private final BitMask mask;
+        private final long[] words;
+        private final int wpr;
+        private final int[] rankBefore;
+        private final int[] xs;
+        private final int[] ys;
+        private long[] heap = new long[256];
+        private int heapSize;
+
+        Graph(BitMask mask) {
+            this.mask = mask;
+            this.words = mask.words();
+            this.wpr = mask.getWordsPerRow();
+            this.rankBefore = new int[words.length];
+            int n = 0;
+            for (int k = 0; k < words.length; k++) {
+                rankBefore[k] = n;
+                n += Long.bitCount(words[k]);
+            }
+            xs = new int[n];
+            ys = new int[n];
+            int idx = 0;
+            for (int k = 0; k < words.length; k++) {
+                long w = words[k];
+                while (w != 0) {
+                    int bit = Long.numberOfTrailingZeros(w);
+                    xs[idx] = (k % wpr) * 64 + bit;
+                    ys[idx] = k / wpr;
+                    idx++;
+                    w &= w - 1;
+                }
+            }
+        }
+
+        int size() { return xs.length; }
+
+        private int rank(int x, int y) {
+            int k = y * wpr + (x >>> 6);
+            return rankBefore[k] + Long.bitCount(words[k] & ((1L << x) - 1));
+        }
+
+        /** Dijkstra depuis source; dist reçoit les distances, renvoie le pixel le plus éloigné. */
+        int farthest(int source, double[] dist) {
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            boolean[] done = new boolean[size()];
+            dist[source] = 0;
+            heapSize = 0;
+            push(0, source);
+            int far = source;
+            while (heapSize > 0) {
+                int u = (int) pop();
+                if (done[u]) continue;
+                done[u] = true;
+                if (dist[u] > dist[far]) far = u;
+                for (int d = 0; d < 8; d++) {
+                    int nx = xs[u] + DX[d];
+                    int ny = ys[u] + DY[d];
+                    // Le bord du masque est vide: pas de test de limites
+                    if (!mask.get(nx, ny)) continue;
+                    int v = rank(nx, ny);
+                    double nd = dist[u] + (d < 4 ? 1 : SQRT2);
+                    if (nd < dist[v]) {
+                        dist[v] = nd;
+                        push(nd, v);
+                    }
+                }
+            }
+            return far;
+        }
+
+        // Tas binaire de long: distance quantifiée (1/256 px) dans les 32 bits hauts, index dans les bas
+        private void push(double d, int v) {
+            if (heapSize == heap.length) heap = Arrays.copyOf(heap, heapSize * 2);
+            long key = ((long) (d * 256) << 32) | v;
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= key) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = key;
+        }
+
+        private long pop() {
+            long top = heap[0];
+            long last = heap[--heapSize];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && heap[child + 1] < heap[child]) child++;
+                if (last <= heap[child]) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top & 0xFFFFFFFFL;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.wirelength.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Copie d'un upload dans un fichier temporaire, lisible après la fin de la requête HTTP
+ * (le conteneur supprime ses propres fichiers multipart à la fin de la requête).
+ * L'image n'est jamais entièrement en mémoire: copie et relectures se font en flux.
+ */
+public final class SpilledUpload implements MultipartFile, AutoCloseable {
+
+    private final String name;
+    private final String contentType;
+    private final Path path;
+    private final long size;
+
+    private SpilledUpload(String name, String contentType, Path path, long size) {
+        this.name = name;
+        this.contentType = contentType;
+        this.path = path;
+        this.size = size;
+    }
+
+    /** Copie le flux de l'upload dans un nouveau fichier de directory. */
+    public static SpilledUpload of(MultipartFile file, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path path = Files.createTempFile(directory, "job-", ".upload");
+        try (InputStream in = file.getInputStream()) {
+            long size = Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+            return new SpilledUpload(file.getOriginalFilename(), file.getContentType(), path, size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    @Override public String getName() { return "file"; }
+    @Override public String getOriginalFilename() { return name; }
+    @Override public String getContentType() { return contentType; }
+    @Override public boolean isEmpty() { return size == 0; }
+    @Override public long getSize() { return size; }
+    @Override public byte[] getBytes() throws IOException { return Files.readAllBytes(path); }
+    @Override public InputStream getInputStream() throws IOException { return Files.newInputStream(path); }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Supprime le fichier temporaire. */
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.wirelength.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tampons de travail des détecteurs (masque couleur, pixels visités), réutilisés d'une requête à l'autre.
+ * - Un BitMask prend un bit par pixel: 3 Mio pour une image de 24 Mpx, au lieu de 24 Mio en boolean[].
+ * - Classes de taille en puissances de 2 (en mots de 64 bits): une image de taille voisine reprend
+ *   le tampon d'une requête précédente au lieu d'en allouer un nouveau.
+ * - Les tampons rendus sont remis à 0 sur la seule plage modifiée (BitMask.clear()):
+ *   pour les pixels visités, les lignes de l'objet et non l'image entière.
+ * - Au plus maxRetainedBytes conservés; au-delà, le tampon rendu est laissé au GC.
+ */
+public final class WorkBufferPool implements MeterBinder {
+
+    // Plus petite classe: 1024 mots (8 Kio); en dessous, l'allocation coûte moins que le pool
+    private static final int MIN_CLASS = 10;
+    private static final int MAX_CLASS = 30;
+
+    private static final WorkBufferPool DISABLED = new WorkBufferPool(0);
+
+    private final long maxRetainedBytes;
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<long[]>[] free = new ArrayDeque[MAX_CLASS + 1];
+    private long retainedBytes; // sous le verrou de this
+    private int retainedBuffers;
+
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong clearedWords = new AtomicLong();
+
+    public WorkBufferPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = Math.max(0, maxRetainedBytes);
+        for (int c = MIN_CLASS; c <= MAX_CLASS; c++) free[c] = new ArrayDeque<>();
+    }
+
+    /** Pool sans rétention: chaque masque est alloué, rien n'est conservé. */
+    public static WorkBufferPool disabled() { return DISABLED; }
+
+    /** Masque width × height entièrement à 0, à rendre par release(). */
+    public BitMask acquire(int width, int height) {
+        int words = BitMask.wordCount(width, height);
+        int c = sizeClass(words);
+        if (maxRetainedBytes > 0 && c <= MAX_CLASS) {
+            long[] buffer;
+            synchronized (this) {
+                buffer = free[c].pollFirst();
+                if (buffer != null) {
+                    retainedBytes -= 8L * buffer.length;
+                    retainedBuffers--;
+                }
+            }
+            if (buffer != null) {
+                reused.incrementAndGet();
+                return new BitMask(width, height, buffer);
+            }
+            allocated.incrementAndGet();
+            return new BitMask(width, height, new long[1 << c]);
+        }
+        allocated.incrementAndGet();
+        return new BitMask(width, height);
+    }
+
+    /** Rend le masque (null accepté). Il ne doit plus être utilisé ensuite. */
+    public void release(BitMask mask) {
+        if (mask == null) return;
+        long[] buffer = mask.buffer();
+        int length = buffer.length;
+        // Tampon hors classe (masque alloué sans pool): laissé au GC
+        if (maxRetainedBytes <= 0 || Integer.bitCount(length) != 1 || length < (1 << MIN_CLASS)) {
+            discarded.incrementAndGet();
+            return;
+        }
+        long bytes = 8L * length;
+        // Remis à 0 hors du verrou, avant d'être rendu disponible
+        clearedWords.addAndGet(mask.clear());
+        synchronized (this) {
+            if (retainedBytes + bytes > maxRetainedBytes) {
+                discarded.incrementAndGet();
+                return;
+            }
+            free[Integer.numberOfTrailingZeros(length)].addFirst(buffer);
+            retainedBytes += bytes;
+            retainedBuffers++;
+        }
+    }
+
+    private static int sizeClass(int words) {
+        return Math.max(MIN_CLASS, 32 - Integer.numberOfLeadingZeros(Math.max(1, words) - 1));
+    }
+
+    public synchronized long getRetainedBytes() { return retainedBytes; }
+    public synchronized int getRetainedBuffers() { return retainedBuffers; }
+    public long getReusedCount() { return reused.get(); }
+    public long getAllocatedCount() { return allocated.get(); }
+
+    /** Part des demandes servies par un tampon réutilisé (0 avant la première demande). */
+    public double getReuseRatio() {
+        long r = reused.get();
+        long total = r + allocated.get();
+        return total == 0 ? 0.0 : (double) r / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("wirelength.buffers.retained.bytes", this, WorkBufferPool::getRetainedBytes)
+                .description("Octets de tampons de travail conservés par le pool")
+                .register(registry);
+        Gauge.builder("wirelength.buffers.retained", this, WorkBufferPool::getRetainedBuffers)
+                .description("Tampons de travail disponibles dans le pool")
+                .register(registry);
+        Gauge.builder("wirelength.buffers.reuse.ratio", this, WorkBufferPool::getReuseRatio)
+                .description("Part des tampons de travail servis sans allocation")
+                .register(registry);
+        FunctionCounter.builder("wirelength.buffers.acquired", reused, AtomicLong::get)
+                .description("Tampons de travail demandés par les détecteurs").tag("result", "reused").register(registry);
+        FunctionCounter.builder("wirelength.buffers.acquired", allocated, AtomicLong::get)
+                .description("Tampons de travail demandés par les détecteurs").tag("result", "allocated").register(registry);
+        FunctionCounter.builder("wirelength.buffers.discarded", discarded, AtomicLong::get)
+                .description("Tampons rendus non conservés (pool plein)").register(registry);
+        FunctionCounter.builder("wirelength.buffers.cleared.words", clearedWords, AtomicLong::get)
+                .description("Mots de 64 bits remis à 0 à la restitution").register(registry);
+    }
+}
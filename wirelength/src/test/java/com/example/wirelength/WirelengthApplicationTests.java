@@ -3,7 +3,7 @@ package com.example.wirelength;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "wirelength.calibration.store-dir=target/test-calibrations")
 class WirelengthApplicationTests {
 
 	@Test
@@ -0,0 +1,122 @@
+package com.example.wirelength.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "wirelength.calibration.store-dir=target/test-calibrations")
+class MeasurementStreamHandlerTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+	private WebSocketSession connect() throws Exception {
+		return new StandardWebSocketClient().execute(new TextWebSocketHandler() {
+			@Override
+			protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+				received.add(message.getPayload());
+			}
+		}, "ws://localhost:" + port + "/api/wirelength/stream?r=200&g=30&b=30&tolerance=40").get(10, TimeUnit.SECONDS);
+	}
+
+	/** Image bruitée (> 8 Kio, au-delà du tampon WebSocket par défaut) avec un fil de longueur length en x. */
+	private static BinaryMessage frame(int x, int length) throws IOException {
+		BufferedImage img = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+		Random random = new Random(x);
+		for (int y = 0; y < 480; y += 4) {
+			for (int px = 0; px < 640; px += 4) {
+				int v = 235 + random.nextInt(20);
+				img.setRGB(px, y, (v << 16) | (v << 8) | v);
+			}
+		}
+		Graphics2D g = img.createGraphics();
+		g.setColor(new Color(200, 30, 30));
+		if (length > 0) g.fillRect(x, 235, length, 10);
+		g.dispose();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(img, "png", out);
+		return new BinaryMessage(out.toByteArray());
+	}
+
+	private JsonNode next() throws Exception {
+		String message = received.poll(20, TimeUnit.SECONDS);
+		assertNotNull(message, "pas de réponse du flux");
+		return objectMapper.readTree(message);
+	}
+
+	@Test
+	void tracksObjectAcrossFramesAndFallsBackWhenLost() throws Exception {
+		WebSocketSession session = connect();
+		try {
+			session.sendMessage(frame(170, 300));
+			JsonNode first = next();
+			assertEquals(1, first.get("frame").asInt());
+			assertFalse(first.get("tracked").asBoolean());
+			assertEquals(300, first.get("result").get("lengthInPixels").asInt());
+
+			// Objet déplacé de quelques pixels: trouvé dans la région du bbox précédent
+			session.sendMessage(frame(180, 300));
+			JsonNode second = next();
+			assertTrue(second.get("tracked").asBoolean());
+			assertEquals(180, second.get("result").get("bbox").get("x").asInt());
+
+			session.sendMessage(frame(0, 0));
+			assertTrue(next().has("error"));
+
+			// Objet perdu: détection sur l'image entière
+			session.sendMessage(frame(170, 300));
+			JsonNode fourth = next();
+			assertFalse(fourth.get("tracked").asBoolean());
+			assertEquals(300, fourth.get("result").get("lengthInPixels").asInt());
+		} finally {
+			session.close();
+		}
+	}
+
+	@Test
+	void dropsStaleFramesWhenClientIsFaster() throws Exception {
+		WebSocketSession session = connect();
+		try {
+			int sent = 30;
+			for (int i = 0; i < sent; i++) session.sendMessage(frame(170 + i, 300));
+			int replies = 0;
+			JsonNode last;
+			do {
+				last = next();
+				replies++;
+			} while (last.get("frame").asInt() < sent);
+			// La dernière image n'est jamais abandonnée; chaque image est mesurée ou comptée abandonnée
+			assertEquals(sent, replies + last.get("dropped").asInt());
+			assertEquals(170 + sent - 1, last.get("result").get("bbox").get("x").asInt());
+		} finally {
+			session.close();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.example.wirelength.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "wirelength.calibration.store-dir=target/test-calibrations")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class WireLengthControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	static byte[] wirePng(int length) throws IOException {
+		BufferedImage img = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 640, 480);
+		g.setColor(new Color(200, 30, 30));
+		g.fillRect(320 - length / 2, 235, length, 10);
+		g.dispose();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(img, "png", out);
+		return out.toByteArray();
+	}
+
+	@Test
+	void measureRunsAsynchronously() throws Exception {
+		MvcResult started = mockMvc.perform(multipart("/api/wirelength/measure-fabric-auto")
+						.file(new MockMultipartFile("file", "a.png", "image/png", wirePng(300)))
+						.param("r", "200").param("g", "30").param("b", "30")
+						.param("tolerance", "40"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		JsonNode body = objectMapper.readTree(mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+		assertEquals(300, body.get("lengthInPixels").asInt());
+		assertFalse(body.has("pixelCount"));
+	}
+
+	@Test
+	void invalidBboxIsBadRequest() throws Exception {
+		for (String path : new String[]{"/api/wirelength/measure-fabric-auto", "/api/wirelength/calibrate-auto-color"}) {
+			MvcResult started = mockMvc.perform(multipart(path)
+							.file(new MockMultipartFile("file", "a.png", "image/png", wirePng(300)))
+							.param("knownWidthMm", "100").param("configName", "bbox-invalide")
+							.param("r", "200").param("g", "30").param("b", "30")
+							.param("tolerance", "40").param("bbox", "10,20,0"))
+					.andExpect(request().asyncStarted())
+					.andReturn();
+			JsonNode body = objectMapper.readTree(mockMvc.perform(asyncDispatch(started))
+					.andExpect(status().isBadRequest())
+					.andReturn().getResponse().getContentAsString());
+			assertTrue(body.get("error").asText().startsWith("bbox invalide"), path);
+		}
+	}
+
+	@Test
+	void measuresEveryObjectOfTray() throws Exception {
+		BufferedImage img = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 640, 480);
+		g.setColor(new Color(200, 30, 30));
+		g.fillRect(50, 60, 300, 10);
+		g.fillRect(100, 200, 450, 10);
+		g.fillRect(20, 400, 3, 3); // poussière, sous minArea
+		g.dispose();
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(img, "png", png);
+
+		MvcResult started = mockMvc.perform(multipart("/api/wirelength/measure-fabric-auto/objects")
+						.file(new MockMultipartFile("file", "tray.png", "image/png", png.toByteArray()))
+						.param("r", "200").param("g", "30").param("b", "30")
+						.param("tolerance", "40").param("minArea", "20"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		JsonNode body = objectMapper.readTree(mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+		assertEquals(2, body.get("count").asInt());
+		assertEquals(300, body.get("objects").get(0).get("lengthInPixels").asInt());
+		assertEquals(3000, body.get("objects").get(0).get("pixelCount").asInt());
+		assertEquals(450, body.get("objects").get(1).get("lengthInPixels").asInt());
+		assertEquals(200, body.get("objects").get(1).get("bbox").get("y").asInt());
+	}
+
+	@Test
+	void jobResultIsReturnedByLongPolling() throws Exception {
+		MvcResult submitted = mockMvc.perform(multipart("/api/wirelength/jobs")
+						.file(new MockMultipartFile("file", "line-scan.png", "image/png", wirePng(300)))
+						.param("r", "200").param("g", "30").param("b", "30")
+						.param("tolerance", "40").param("priority", "bulk"))
+				.andExpect(status().isAccepted())
+				.andReturn();
+		JsonNode job = objectMapper.readTree(submitted.getResponse().getContentAsString());
+		String id = job.get("jobId").asText();
+		assertEquals("/api/wirelength/jobs/" + id, submitted.getResponse().getHeader("Location"));
+		assertEquals("bulk", job.get("priority").asText());
+
+		MvcResult polled = mockMvc.perform(get("/api/wirelength/jobs/" + id).param("wait", "10"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		JsonNode done = objectMapper.readTree(mockMvc.perform(asyncDispatch(polled))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+		assertEquals("succeeded", done.get("status").asText());
+		assertEquals("fabric_measurement", done.get("result").get("analysisType").asText());
+		assertEquals(300, done.get("result").get("lengthInPixels").asInt());
+
+		MvcResult unknown = mockMvc.perform(get("/api/wirelength/jobs/inconnue"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(unknown)).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void prometheusExposesStageTimings() throws Exception {
+		measureRunsAsynchronously();
+		String scrape = mockMvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		for (String stage : new String[]{"read", "decode", "mask", "search", "pca", "response"}) {
+			assertTrue(scrape.contains("wirelength_analysis_stage_seconds_count{stage=\"" + stage + "\"}"), stage);
+		}
+		assertTrue(scrape.contains("wirelength_image_megapixels_count"));
+	}
+
+	@Test
+	void batchStreamsOneLinePerFileAndReportsBadImages() throws Exception {
+		MvcResult started = mockMvc.perform(multipart("/api/wirelength/measure-fabric-auto/batch")
+						.file(new MockMultipartFile("files", "a.png", "image/png", wirePng(300)))
+						.file(new MockMultipartFile("files", "broken.png", "image/png", new byte[]{1, 2, 3}))
+						.file(new MockMultipartFile("files", "b.png", "image/png", wirePng(500)))
+						.param("r", "200").param("g", "30").param("b", "30")
+						.param("tolerance", "40"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		List<JsonNode> lines = new ArrayList<>();
+		for (String line : body.split("\n")) lines.add(objectMapper.readTree(line));
+		assertEquals(3, lines.size());
+		for (JsonNode line : lines) {
+			switch (line.get("file").asText()) {
+				case "a.png" -> assertEquals(300, line.get("result").get("lengthInPixels").asInt());
+				case "b.png" -> assertEquals(500, line.get("result").get("lengthInPixels").asInt());
+				default -> assertTrue(line.has("error"));
+			}
+		}
+	}
+}
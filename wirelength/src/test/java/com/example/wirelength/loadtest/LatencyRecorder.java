@@ -0,0 +1,64 @@
+package com.example.wirelength.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latences d'un scénario (nanosecondes) et codes HTTP obtenus. Toutes les valeurs sont gardées:
+ * les percentiles extrêmes (p99.9) sont exacts, sans histogramme approché.
+ */
+final class LatencyRecorder {
+
+	private long[] latencies = new long[4096];
+	private int count;
+	private int errors;
+	private final Map<Integer, Integer> statuses = new TreeMap<>();
+
+	/** status 0: pas de réponse (erreur réseau, délai dépassé). */
+	synchronized void record(long nanos, int status) {
+		if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+		latencies[count++] = nanos;
+		statuses.merge(status, 1, Integer::sum);
+		if (status < 200 || status >= 300) errors++;
+	}
+
+	/** Résumé pour le rapport: nombre, erreurs, débit, percentiles en millisecondes. */
+	synchronized Map<String, Object> summary(double elapsedSeconds) {
+		long[] sorted = Arrays.copyOf(latencies, count);
+		Arrays.sort(sorted);
+		Map<String, Object> latency = new LinkedHashMap<>();
+		latency.put("p50", millis(percentile(sorted, 50)));
+		latency.put("p95", millis(percentile(sorted, 95)));
+		latency.put("p99", millis(percentile(sorted, 99)));
+		latency.put("p99.9", millis(percentile(sorted, 99.9)));
+		latency.put("max", millis(count > 0 ? sorted[count - 1] : 0));
+		latency.put("mean", millis(count > 0 ? (long) Arrays.stream(sorted).average().orElse(0) : 0));
+
+		Map<String, Object> out = new LinkedHashMap<>();
+		out.put("requests", count);
+		out.put("errors", errors);
+		out.put("statusCounts", new LinkedHashMap<>(statuses));
+		out.put("throughputPerSecond", round(count / Math.max(1e-9, elapsedSeconds)));
+		out.put("latencyMs", latency);
+		return out;
+	}
+
+	synchronized int count() { return count; }
+
+	/** Percentile par rang le plus proche. */
+	private static long percentile(long[] sorted, double p) {
+		if (sorted.length == 0) return 0;
+		int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+	}
+
+	private static double millis(long nanos) {
+		return round(nanos / 1_000_000.0);
+	}
+
+	private static double round(double v) {
+		return Math.round(v * 1000) / 1000.0;
+	}
+}
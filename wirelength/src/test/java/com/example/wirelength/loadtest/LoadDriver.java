@@ -0,0 +1,92 @@
+package com.example.wirelength.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Envoie des requêtes pendant une durée donnée, selon l'un de deux modèles:
+ * - boucle fermée: concurrency clients, chacun envoie la requête suivante dès la réponse reçue;
+ * - boucle ouverte: rate requêtes/s à intervalles fixes, quel que soit le temps de réponse.
+ *   La latence est mesurée depuis l'instant d'envoi prévu, pour ne pas masquer l'attente
+ *   quand le serveur prend du retard (omission coordonnée).
+ */
+final class LoadDriver {
+
+	private final HttpClient client;
+	private final Duration timeout;
+
+	LoadDriver(HttpClient client, Duration timeout) {
+		this.client = client;
+		this.timeout = timeout;
+	}
+
+	/** Boucle fermée. requests: n-ième requête à envoyer. */
+	void closedLoop(int concurrency, Duration duration, LongFunction<HttpRequest> requests, LatencyRecorder recorder)
+			throws InterruptedException {
+		long end = System.nanoTime() + duration.toNanos();
+		AtomicLong sequence = new AtomicLong();
+		ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+		try {
+			for (int i = 0; i < concurrency; i++) {
+				clients.execute(() -> {
+					while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+						HttpRequest request = withTimeout(requests.apply(sequence.getAndIncrement()));
+						long start = System.nanoTime();
+						int status;
+						try {
+							status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return;
+						} catch (Exception e) {
+							status = 0;
+						}
+						recorder.record(System.nanoTime() - start, status);
+					}
+				});
+			}
+		} finally {
+			clients.shutdown();
+			clients.awaitTermination(duration.toMillis() + timeout.toMillis() + 5000, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/** Boucle ouverte à rate requêtes par seconde. */
+	void openLoop(double rate, Duration duration, LongFunction<HttpRequest> requests, LatencyRecorder recorder)
+			throws InterruptedException {
+		long intervalNanos = (long) (1_000_000_000L / rate);
+		long start = System.nanoTime();
+		long total = (long) (rate * duration.toNanos() / 1_000_000_000.0);
+		List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+		for (long n = 0; n < total; n++) {
+			long intended = start + n * intervalNanos;
+			long wait = intended - System.nanoTime();
+			if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+			inFlight.add(client.sendAsync(withTimeout(requests.apply(n)), HttpResponse.BodyHandlers.discarding())
+					.handle((response, error) -> {
+						recorder.record(System.nanoTime() - intended, error != null ? 0 : response.statusCode());
+						return null;
+					}));
+		}
+		try {
+			CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0]))
+					.get(timeout.toMillis() + 5000, TimeUnit.MILLISECONDS);
+		} catch (Exception ignored) {
+			// Les requêtes sans réponse sont comptées en erreur par leur délai
+		}
+	}
+
+	private HttpRequest withTimeout(HttpRequest request) {
+		return HttpRequest.newBuilder(request, (name, value) -> true).timeout(timeout).build();
+	}
+}
@@ -0,0 +1,268 @@
+package com.example.wirelength.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de charge local des endpoints REST (exclu du build par défaut, profil Maven loadtest):
+ *   mvn test -Ploadtest -Dloadtest.concurrency=16 -Dloadtest.duration=30
+ *
+ * Chaque scénario (mesure, calibration, liste des calibrations) tourne après une phase de
+ * chauffe non comptée. Paramètres (propriétés système):
+ * - loadtest.concurrency: clients en boucle fermée (8)
+ * - loadtest.rate: requêtes/s en boucle ouverte; 0 = boucle fermée (0)
+ * - loadtest.duration / loadtest.warmup: secondes par scénario (20 / 5)
+ * - loadtest.megapixels: taille des images envoyées (2)
+ * - loadtest.formats: formats d'image, parmi jpeg et png (jpeg,png)
+ * - loadtest.variants: images distinctes par format, pour ne pas mesurer que le cache (16)
+ * - loadtest.report: rapport JSON (target/loadtest-report.json)
+ *
+ * Les calibrations sont stockées dans un répertoire temporaire neuf à chaque exécution, et la
+ * calibration reprend cycliquement loadtest.variants noms: la liste mesurée ensuite a toujours la
+ * même taille. Un nom déjà pris est refusé (400) après décodage et détection, qui restent mesurés.
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class RestEndpointsLoadTest {
+
+	@TempDir
+	static Path calibrationStore;
+
+	@DynamicPropertySource
+	static void calibrationStore(DynamicPropertyRegistry registry) {
+		registry.add("wirelength.calibration.store-dir", () -> calibrationStore.toString());
+	}
+
+	private static final Color WIRE = new Color(200, 30, 30);
+
+	@LocalServerPort
+	private int port;
+
+	private final int concurrency = Integer.getInteger("loadtest.concurrency", 8);
+	private final double rate = Double.parseDouble(System.getProperty("loadtest.rate", "0"));
+	private final Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration", 20));
+	private final Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup", 5));
+	private final double megapixels = Double.parseDouble(System.getProperty("loadtest.megapixels", "2"));
+	private final String[] formats = System.getProperty("loadtest.formats", "jpeg,png").split(",");
+	private final int variants = Integer.getInteger("loadtest.variants", 16);
+	private final Path report = Path.of(System.getProperty("loadtest.report", "target/loadtest-report.json"));
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.executor(Executors.newFixedThreadPool(Math.max(4, concurrency)))
+			.build();
+	private final LoadDriver driver = new LoadDriver(client, Duration.ofSeconds(120));
+
+	/** Image encodée prête à l'envoi. */
+	private record Upload(String name, String contentType, byte[] bytes) {}
+
+	@Test
+	void measureEndpointsUnderLoad() throws Exception {
+		List<Upload> uploads = new ArrayList<>();
+		for (String format : formats) {
+			for (int i = 0; i < variants; i++) uploads.add(syntheticUpload(format.trim(), i));
+		}
+
+		Map<String, LongFunction<HttpRequest>> scenarios = new LinkedHashMap<>();
+		scenarios.put("POST /measure-fabric-auto", n -> multipart("/measure-fabric-auto",
+				uploads.get((int) (n % uploads.size())),
+				Map.of("r", "200", "g", "30", "b", "30", "tolerance", "40")));
+		scenarios.put("POST /calibrate-auto-color", n -> multipart("/calibrate-auto-color",
+				uploads.get((int) (n % uploads.size())),
+				Map.of("r", "200", "g", "30", "b", "30", "tolerance", "40",
+						"knownWidthMm", "100", "configName", "loadtest-" + n % variants)));
+		scenarios.put("GET /calibrations", n -> HttpRequest.newBuilder(uri("/calibrations")).GET().build());
+
+		Map<String, Object> results = new LinkedHashMap<>();
+		JvmSampler jvm = new JvmSampler();
+		int total = 0;
+		for (Map.Entry<String, LongFunction<HttpRequest>> scenario : scenarios.entrySet()) {
+			run(scenario.getValue(), warmup, new LatencyRecorder());
+
+			LatencyRecorder recorder = new LatencyRecorder();
+			jvm.reset();
+			long start = System.nanoTime();
+			run(scenario.getValue(), duration, recorder);
+			double elapsed = (System.nanoTime() - start) / 1e9;
+
+			Map<String, Object> summary = recorder.summary(elapsed);
+			summary.put("jvm", jvm.stop());
+			results.put(scenario.getKey(), summary);
+			total += recorder.count();
+		}
+
+		Map<String, Object> out = new LinkedHashMap<>();
+		out.put("timestamp", Instant.now().toString());
+		out.put("config", config(uploads));
+		out.put("endpoints", results);
+		Files.createDirectories(report.toAbsolutePath().getParent());
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), out);
+		System.out.println("Rapport de charge: " + report.toAbsolutePath());
+
+		assertTrue(total > 0);
+		assertTrue(Files.size(report) > 0);
+	}
+
+	private void run(LongFunction<HttpRequest> requests, Duration length, LatencyRecorder recorder)
+			throws InterruptedException {
+		if (length.isZero()) return;
+		if (rate > 0) driver.openLoop(rate, length, requests, recorder);
+		else driver.closedLoop(concurrency, length, requests, recorder);
+	}
+
+	private Map<String, Object> config(List<Upload> uploads) {
+		Map<String, Object> config = new LinkedHashMap<>();
+		config.put("mode", rate > 0 ? "open-loop" : "closed-loop");
+		config.put("concurrency", rate > 0 ? null : concurrency);
+		config.put("ratePerSecond", rate > 0 ? rate : null);
+		config.put("durationSeconds", duration.toSeconds());
+		config.put("warmupSeconds", warmup.toSeconds());
+		config.put("megapixels", megapixels);
+		config.put("formats", List.of(formats));
+		config.put("uploads", uploads.size());
+		config.put("averageUploadBytes", uploads.stream().mapToLong(u -> u.bytes().length).sum() / uploads.size());
+		config.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+		config.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+		return config;
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + "/api/wirelength" + path);
+	}
+
+	/** Corps multipart/form-data construit à la main: un fichier "file" et des champs texte. */
+	private HttpRequest multipart(String path, Upload upload, Map<String, String> fields) {
+		String boundary = "----loadtest" + Long.toHexString(System.nanoTime());
+		ByteArrayOutputStream body = new ByteArrayOutputStream(upload.bytes().length + 1024);
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			write(body, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + field.getKey()
+					+ "\"\r\n\r\n" + field.getValue() + "\r\n");
+		}
+		write(body, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\""
+				+ upload.name() + "\"\r\nContent-Type: " + upload.contentType() + "\r\n\r\n");
+		body.writeBytes(upload.bytes());
+		write(body, "\r\n--" + boundary + "--\r\n");
+		return HttpRequest.newBuilder(uri(path))
+				.header("Content-Type", "multipart/form-data; boundary=" + boundary)
+				.POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+				.build();
+	}
+
+	private static void write(ByteArrayOutputStream out, String text) {
+		out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Fond clair légèrement bruité (pour que le JPEG ait une taille réaliste), fil rouge horizontal
+	 * dont la longueur dépend de la variante.
+	 */
+	private Upload syntheticUpload(String format, int variant) throws IOException {
+		int width = (int) Math.round(Math.sqrt(megapixels * 1_000_000 * 4 / 3));
+		int height = width * 3 / 4;
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		Random random = new Random(variant);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int v = 230 + random.nextInt(20);
+				row[x] = (v << 16) | (v << 8) | v;
+			}
+			img.setRGB(0, y, width, 1, row, 0, width);
+		}
+		Graphics2D g = img.createGraphics();
+		g.setColor(WIRE);
+		int length = width / 3 + variant * width / (3 * Math.max(1, variants));
+		g.fillRect((width - length) / 2, height / 2 - 5, length, Math.max(10, height / 100));
+		g.dispose();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		if (!ImageIO.write(img, format, out)) throw new IllegalArgumentException("Format non supporté: " + format);
+		String ext = format.equals("jpeg") ? "jpg" : format;
+		return new Upload("wire-" + variant + "." + ext, "image/" + format, out.toByteArray());
+	}
+
+	/**
+	 * Mémoire et GC de la JVM (serveur et client partagent le processus) pendant un scénario:
+	 * tas au début et pic échantillonné toutes les 50 ms, nombre et durée cumulée des collections.
+	 */
+	private static final class JvmSampler {
+		private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "loadtest-jvm-sampler");
+			t.setDaemon(true);
+			return t;
+		});
+		private final AtomicLong peakHeap = new AtomicLong();
+		private long heapBefore, gcCountBefore, gcTimeBefore;
+
+		JvmSampler() {
+			sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(
+					memory.getHeapMemoryUsage().getUsed(), Math::max), 0, 50, TimeUnit.MILLISECONDS);
+		}
+
+		void reset() {
+			heapBefore = memory.getHeapMemoryUsage().getUsed();
+			peakHeap.set(heapBefore);
+			gcCountBefore = gcCount();
+			gcTimeBefore = gcTime();
+		}
+
+		Map<String, Object> stop() {
+			Map<String, Object> out = new LinkedHashMap<>();
+			out.put("heapBeforeBytes", heapBefore);
+			out.put("heapPeakBytes", peakHeap.get());
+			out.put("gcCount", gcCount() - gcCountBefore);
+			out.put("gcTimeMs", gcTime() - gcTimeBefore);
+			return out;
+		}
+
+		private static long gcCount() {
+			long n = 0;
+			for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, gc.getCollectionCount());
+			return n;
+		}
+
+		private static long gcTime() {
+			long t = 0;
+			for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) t += Math.max(0, gc.getCollectionTime());
+			return t;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.CalibrationConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalibrationJournalTests {
+
+	@TempDir
+	Path dir;
+
+	private CalibrationService open(CalibrationJournal journal) {
+		CalibrationService service = new CalibrationService();
+		ReflectionTestUtils.setField(service, "journal", journal);
+		service.restore();
+		return service;
+	}
+
+	@Test
+	void restartRestoresCalibrationsAndActiveOne() throws Exception {
+		try (CalibrationJournal journal = new CalibrationJournal(dir, 500)) {
+			CalibrationService service = open(journal);
+			service.createCalibration("Poste A", 30, 300, null);
+			service.createCalibration("Poste B", 20, 100, null);
+			service.updateMetadata("poste a", "Caméra 2", null);
+			service.setActiveCalibration("POSTE A");
+			service.deleteCalibration("Calibration par défaut");
+		}
+		try (CalibrationJournal journal = new CalibrationJournal(dir, 500)) {
+			CalibrationService service = open(journal);
+			List<CalibrationConfig> all = service.getAllCalibrations();
+			assertEquals(List.of("Poste A", "Poste B"), all.stream().map(CalibrationConfig::getName).toList());
+			assertEquals("Poste A", service.getActiveCalibration().getName());
+			assertEquals("Caméra 2", service.getActiveCalibration().getCameraSetup());
+			assertEquals(0.2, service.getCalibrationByName("poste b").getPixelToMmRatio(), 1e-9);
+		}
+	}
+
+	@Test
+	void compactionKeepsStateAndTruncatesJournal() throws Exception {
+		try (CalibrationJournal journal = new CalibrationJournal(dir, 3)) {
+			CalibrationService service = open(journal);
+			for (int i = 0; i < 10; i++) service.createCalibration("c" + i, 10, 100 + i, null);
+			service.setActiveCalibration("c4");
+		}
+		assertTrue(Files.exists(dir.resolve("snapshot.json")));
+		try (var files = Files.list(dir)) {
+			assertEquals(1, files.filter(f -> f.getFileName().toString().startsWith("journal-")).count());
+		}
+		try (CalibrationJournal journal = new CalibrationJournal(dir, 3)) {
+			CalibrationService service = open(journal);
+			assertEquals(11, service.getAllCalibrations().size());
+			assertEquals("c4", service.getActiveCalibration().getName());
+		}
+	}
+
+	@Test
+	void tornLastLineIsDroppedOnReplay() throws Exception {
+		try (CalibrationJournal journal = new CalibrationJournal(dir, 500)) {
+			open(journal).createCalibration("Poste A", 30, 300, null);
+		}
+		Path journalFile = dir.resolve("journal-0.ndjson");
+		Files.write(journalFile, "{\"op\":\"create\",\"name\":\"Pos".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		try (CalibrationJournal journal = new CalibrationJournal(dir, 500)) {
+			CalibrationService service = open(journal);
+			assertEquals(2, service.getAllCalibrations().size());
+			service.createCalibration("Poste B", 20, 100, null);
+		}
+		try (CalibrationJournal journal = new CalibrationJournal(dir, 500)) {
+			assertEquals("Poste B", open(journal).getActiveCalibration().getName());
+		}
+	}
+
+	@Test
+	void failedWriteIsRemovedAndStopsJournal() throws Exception {
+		try (CalibrationJournal journal = new CalibrationJournal(dir, 500)) {
+			CalibrationService service = open(journal);
+			service.createCalibration("Poste A", 30, 300, null);
+			FileChannel real = (FileChannel) ReflectionTestUtils.getField(journal, "journal");
+			ReflectionTestUtils.setField(journal, "journal", new DiskFullChannel(real));
+			CalibrationConfig b = new CalibrationConfig("Poste B", 0.2, null, null);
+			assertThrows(CompletionException.class, () -> journal.append(CalibrationJournal.created(b)).join());
+			// Même si l'écriture suivante réussirait, le journal reste arrêté
+			ReflectionTestUtils.setField(journal, "journal", real);
+			assertThrows(CompletionException.class, () -> journal.append(CalibrationJournal.activated("Poste A")).join());
+		}
+		String content = Files.readString(dir.resolve("journal-0.ndjson"));
+		assertTrue(content.endsWith("\n"));
+		assertFalse(content.contains("Poste B"));
+		try (CalibrationJournal journal = new CalibrationJournal(dir, 500)) {
+			CalibrationService service = open(journal);
+			assertEquals("Poste A", service.getActiveCalibration().getName());
+			assertEquals(2, service.getAllCalibrations().size());
+		}
+	}
+
+	/** Canal qui écrit la moitié du tampon puis échoue, comme un disque plein. */
+	private static final class DiskFullChannel extends FileChannel {
+		private final FileChannel delegate;
+
+		DiskFullChannel(FileChannel delegate) { this.delegate = delegate; }
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			ByteBuffer half = src.duplicate();
+			half.limit(src.position() + src.remaining() / 2);
+			delegate.write(half);
+			throw new IOException("No space left on device");
+		}
+
+		@Override public int read(ByteBuffer dst) throws IOException { return delegate.read(dst); }
+		@Override public long read(ByteBuffer[] dsts, int offset, int length) throws IOException { return delegate.read(dsts, offset, length); }
+		@Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException { throw new IOException("No space left on device"); }
+		@Override public long position() throws IOException { return delegate.position(); }
+		@Override public FileChannel position(long newPosition) throws IOException { delegate.position(newPosition); return this; }
+		@Override public long size() throws IOException { return delegate.size(); }
+		@Override public FileChannel truncate(long size) throws IOException { delegate.truncate(size); return this; }
+		@Override public void force(boolean metaData) throws IOException { delegate.force(metaData); }
+		@Override public long transferTo(long position, long count, WritableByteChannel target) throws IOException { return delegate.transferTo(position, count, target); }
+		@Override public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException { return delegate.transferFrom(src, position, count); }
+		@Override public int read(ByteBuffer dst, long position) throws IOException { return delegate.read(dst, position); }
+		@Override public int write(ByteBuffer src, long position) throws IOException { throw new IOException("No space left on device"); }
+		@Override public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException { return delegate.map(mode, position, size); }
+		@Override public FileLock lock(long position, long size, boolean shared) throws IOException { return delegate.lock(position, size, shared); }
+		@Override public FileLock tryLock(long position, long size, boolean shared) throws IOException { return delegate.tryLock(position, size, shared); }
+		@Override protected void implCloseChannel() throws IOException { delegate.close(); }
+	}
+}
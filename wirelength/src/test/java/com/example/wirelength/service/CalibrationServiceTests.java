@@ -0,0 +1,73 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.CalibrationConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalibrationServiceTests {
+
+	private final CalibrationService service = new CalibrationService();
+
+	@Test
+	void lookupIgnoresCaseAndNamesStayUnique() {
+		service.createCalibration("Poste A", 30, 300, null);
+		assertEquals(0.1, service.getCalibrationByName("poste a").getPixelToMmRatio(), 1e-9);
+		assertThrows(IllegalArgumentException.class, () -> service.createCalibration("POSTE A", 10, 100, null));
+	}
+
+	@Test
+	void publishedSnapshotsAreReadOnly() {
+		service.createCalibration("Poste A", 30, 300, null);
+		assertThrows(IllegalStateException.class, () -> service.getActiveCalibration().setPixelToMmRatio(42));
+		assertThrows(IllegalStateException.class, () -> service.getAllCalibrations().get(1).setActive(false));
+		service.updateMetadata("poste a", "Caméra 2", null);
+		assertEquals("Caméra 2", service.getActiveCalibration().getCameraSetup());
+		assertEquals(0.1, service.getActiveCalibration().getPixelToMmRatio(), 1e-9);
+		assertTrue(service.getCalibrationByName("Poste A").isActive());
+	}
+
+	@Test
+	void deletingActiveCalibrationActivatesOldestRemaining() {
+		service.createCalibration("Poste A", 30, 300, null);
+		service.createCalibration("Poste B", 20, 100, null);
+		assertTrue(service.deleteCalibration("poste b"));
+		assertEquals("Calibration par défaut", service.getActiveCalibration().getName());
+		assertTrue(service.deleteCalibration("Calibration par défaut"));
+		assertFalse(service.deleteCalibration("Poste A"));
+		assertEquals("Poste A", service.getActiveCalibration().getName());
+		List<CalibrationConfig> all = service.getAllCalibrations();
+		assertEquals(1, all.size());
+		assertTrue(all.get(0).isActive());
+	}
+
+	@Test
+	void concurrentCreationsAndActivationsKeepOneActiveCalibration() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> tasks = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				final int n = i;
+				tasks.add(pool.submit(() -> {
+					service.createCalibration("c" + n, 10, 100 + n, null);
+					service.setActiveCalibration("C" + (n / 2));
+					assertNotNull(service.getActiveCalibration());
+				}));
+			}
+			for (Future<?> t : tasks) t.get();
+		} finally {
+			pool.shutdown();
+		}
+		List<CalibrationConfig> all = service.getAllCalibrations();
+		assertEquals(201, all.size());
+		assertEquals(1, all.stream().filter(CalibrationConfig::isActive).count());
+		assertEquals(service.getActiveCalibration().getName(),
+				all.stream().filter(CalibrationConfig::isActive).findFirst().orElseThrow().getName());
+	}
+}
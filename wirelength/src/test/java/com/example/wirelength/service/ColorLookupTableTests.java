@@ -0,0 +1,53 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.ColorSpace;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColorLookupTableTests {
+
+	private static int rgb(int r, int g, int b) {
+		return r << 16 | g << 8 | b;
+	}
+
+	@Test
+	void tablesAreSharedPerTargetToleranceAndSpace() {
+		long[] hsv = ColorLookupTable.get(ColorSpace.HSV, 200, 30, 30, 40);
+		assertSame(hsv, ColorLookupTable.get(ColorSpace.HSV, 200, 30, 30, 40));
+		assertNotSame(hsv, ColorLookupTable.get(ColorSpace.LAB, 200, 30, 30, 40));
+		assertNotSame(hsv, ColorLookupTable.get(ColorSpace.HSV, 200, 30, 30, 41));
+		assertEquals(64 * 64 * 64 / 64, hsv.length);
+	}
+
+	@Test
+	void labToleranceIsDeltaE() {
+		ColorMatcher tight = new ColorMatcher(128, 128, 128, 3, ColorSpace.LAB);
+		ColorMatcher loose = new ColorMatcher(128, 128, 128, 8, ColorSpace.LAB);
+		// Gris 128 -> 144: ΔE ≈ 6 (luminance seule)
+		assertTrue(tight.matches(rgb(128, 128, 128)));
+		assertFalse(tight.matches(rgb(144, 144, 144)));
+		assertTrue(loose.matches(rgb(144, 144, 144)));
+		assertFalse(loose.matches(rgb(128, 100, 128)));
+		// Le canal alpha est ignoré
+		assertTrue(tight.matches(0xFF000000 | rgb(128, 128, 128)));
+	}
+
+	@Test
+	void hsvIgnoresSaturationNoiseOfWhiteBackground() {
+		ColorMatcher red = new ColorMatcher(200, 30, 30, 60, ColorSpace.HSV);
+		assertTrue(red.matches(rgb(100, 15, 15)));
+		assertFalse(red.matches(rgb(255, 255, 255)));
+		assertFalse(red.matches(rgb(30, 200, 30)));
+		assertFalse(red.matches(rgb(200, 150, 150)));
+	}
+
+	@Test
+	void hugeRgbToleranceMatchesEverything() {
+		// 46341² dépasse Integer.MAX_VALUE
+		ColorMatcher any = new ColorMatcher(0, 0, 0, 46341);
+		assertTrue(any.matches(rgb(255, 255, 255)));
+		assertTrue(new ColorMatcher(0, 0, 0, Integer.MAX_VALUE).matches(rgb(255, 255, 255)));
+		assertFalse(new ColorMatcher(0, 0, 0, 441).matches(rgb(255, 255, 255)));
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.wirelength.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FloodFillTests {
+
+	private static final ColorMatcher BLUE = new ColorMatcher(20, 40, 220, 60);
+
+	/** Fil diagonal fin sur toute la hauteur: le remplissage part du milieu, descend puis remonte ligne à ligne. */
+	private static DecodedFrame diagonal(int width, int height, float stroke) {
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, width, height);
+		g.setColor(new Color(20, 40, 220));
+		g.setStroke(new BasicStroke(stroke));
+		g.drawLine(20, 20, width - 20, height - 20);
+		g.dispose();
+		return new DecodedFrame(img, "diagonal.png");
+	}
+
+	@Test
+	void rowsAddedBottomUpKeepTheirExtremes() {
+		ComponentStats stats = new ComponentStats();
+		for (int y = 1000; y >= 0; y--) stats.add(y, y);
+		assertEquals(0, stats.getAnchorX());
+		assertEquals(Math.round(1000 * Math.sqrt(2)), stats.majorAxisLength(), 2);
+	}
+
+	@Test
+	void fillAndLazyFillMatchRunLengthEngineOnDiagonal() {
+		DecodedFrame frame = diagonal(1975, 1785, 3f);
+		int width = frame.getWidth();
+		int height = frame.getHeight();
+		ComponentStats runs = new RunLengthDetector().detect(frame, BLUE, DetectionContext.sequential());
+
+		BitMask mask = new BitMask(width, height);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			frame.readRow(y, row);
+			for (int x = 0; x < width; x++) if (BLUE.matches(row[x])) mask.set(x, y);
+		}
+		int start = (height / 2) * width + width / 2;
+		while (!mask.get(start % width, start / width)) start++;
+		ComponentStats filled = new FloodFill().fill(mask, new BitMask(width, height), start);
+		ComponentStats lazy = new FloodFill().fillLazy(frame, BLUE, new BitMask(width, height), start);
+
+		for (ComponentStats stats : new ComponentStats[]{filled, lazy}) {
+			assertEquals(runs.getCount(), stats.getCount());
+			assertEquals(runs.bboxMap(), stats.bboxMap());
+			assertEquals(runs.majorAxisLength(), stats.majorAxisLength());
+			assertEquals(runs.getAnchorX(), stats.getAnchorX());
+		}
+	}
+}
@@ -0,0 +1,374 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.ColorSpace;
+import com.example.wirelength.model.DetectionEngine;
+import com.example.wirelength.model.DetectionOptions;
+import com.example.wirelength.model.MeasurementStrategy;
+import com.example.wirelength.model.RegionHint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageAnalysisServiceTests {
+
+	private final ImageAnalysisService service = newService(RowBandExecutor.sequential());
+
+	private static ImageAnalysisService newService(RowBandExecutor bands) {
+		ImageAnalysisService s = new ImageAnalysisService();
+		ReflectionTestUtils.setField(s, "rowBandExecutor", bands);
+		ReflectionTestUtils.setField(s, "measurementCache", new MeasurementCache(0));
+		ReflectionTestUtils.setField(s, "pipelineMetrics", PipelineMetrics.disabled());
+		ReflectionTestUtils.setField(s, "workBufferPool", new WorkBufferPool(64L << 20));
+		return s;
+	}
+
+	private static DecodedFrame horizontalWire() {
+		BufferedImage img = new BufferedImage(800, 600, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 800, 600);
+		g.setColor(new Color(200, 30, 30));
+		g.fillRect(200, 290, 400, 20);
+		g.dispose();
+		return new DecodedFrame(img, "horizontal.png");
+	}
+
+	private static DecodedFrame diagonalWire() {
+		BufferedImage img = new BufferedImage(800, 600, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 800, 600);
+		g.setColor(new Color(20, 40, 220));
+		g.setStroke(new BasicStroke(9f));
+		g.drawLine(150, 100, 650, 500);
+		// Bruit de même couleur, non connexe au fil
+		g.fillRect(10, 10, 30, 30);
+		g.dispose();
+		return new DecodedFrame(img, "diagonal.png");
+	}
+
+	private static DecodedFrame coiledWire() {
+		BufferedImage img = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 640, 480);
+		g.setColor(new Color(30, 160, 40));
+		g.setStroke(new BasicStroke(7f));
+		// Fil en U dont les branches ne se rejoignent qu'en bas: fusion de segments entre lignes
+		g.drawLine(320, 240, 320, 60);
+		g.drawLine(320, 400, 320, 240);
+		g.drawLine(320, 400, 500, 400);
+		g.drawLine(500, 400, 500, 100);
+		g.drawArc(200, 150, 300, 200, 30, 200);
+		g.dispose();
+		return new DecodedFrame(img, "coiled.png");
+	}
+
+	/** Fil rouge dans une ombre: luminosité de 100 % (gauche) à 50 % (droite), teinte et saturation constantes. */
+	private static DecodedFrame shadedWire() {
+		BufferedImage img = new BufferedImage(800, 600, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 800, 600);
+		for (int x = 200; x < 600; x++) {
+			double f = 1.0 - 0.5 * (x - 200) / 400.0;
+			g.setColor(new Color((int) Math.round(200 * f), (int) Math.round(30 * f), (int) Math.round(30 * f)));
+			g.fillRect(x, 290, 1, 20);
+		}
+		g.dispose();
+		return new DecodedFrame(img, "shaded.png");
+	}
+
+	@Test
+	void detectsHorizontalWireBboxAndLength() {
+		ImageAnalysisService.AutoColorDetectionResult det =
+				service.detectLongSideByColor(horizontalWire(), 200, 30, 30, 40);
+		assertTrue(det.isSuccess());
+		assertEquals(Map.of("x", 200, "y", 290, "w", 400, "h", 20), det.getBbox());
+		assertEquals(400, det.getPixelLength());
+	}
+
+	@Test
+	void diagonalWireUsesPrincipalAxis() {
+		ImageAnalysisService.AutoColorDetectionResult det =
+				service.detectLongSideByColor(diagonalWire(), null, null, null, 60);
+		assertTrue(det.isSuccess());
+		// Longueur du segment ≈ 640 px, bien au-delà du long côté du bbox (≈ 510)
+		assertEquals(640, det.getPixelLength(), 12);
+		assertTrue(det.getBbox().get("x") > 100);
+	}
+
+	@Test
+	void failsWhenNothingMatchesNearCenter() {
+		ImageAnalysisService.AutoColorDetectionResult det =
+				service.detectLongSideByColor(horizontalWire(), 0, 255, 0, 10);
+		assertFalse(det.isSuccess());
+	}
+
+	/** Demi-cercle de rayon 150 passant par le centre de l'image: longueur π·150 ≈ 471 (+7 pour les extrémités carrées). */
+	private static DecodedFrame curvedWire() {
+		BufferedImage img = new BufferedImage(800, 600, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 800, 600);
+		g.setColor(new Color(200, 30, 30));
+		g.setStroke(new BasicStroke(7f));
+		g.drawArc(250, 0, 300, 300, 180, 180);
+		g.dispose();
+		return new DecodedFrame(img, "curved.png");
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = DetectionEngine.class, names = {"BFS", "RUNS", "OPENCV"})
+	void skeletonStrategyFollowsCurvedWire(DetectionEngine engine) {
+		DetectionOptions rectangle = new DetectionOptions(200, 30, 30, 40);
+		rectangle.setEngine(engine);
+		DetectionOptions skeleton = new DetectionOptions(200, 30, 30, 40);
+		skeleton.setEngine(engine);
+		skeleton.setStrategy(MeasurementStrategy.SKELETON);
+
+		// Rectangle: à peu près le diamètre
+		assertEquals(307, service.detectLongSideByColor(curvedWire(), rectangle).getPixelLength(), 5);
+		// Squelette: longueur de l'arc; le chemin en pas de 1 et √2 surestime les courbes d'environ 5 %
+		ImageAnalysisService.AutoColorDetectionResult det = service.detectLongSideByColor(curvedWire(), skeleton);
+		assertEquals(478 * 1.05, det.getPixelLength(), 478 * 0.03);
+		assertEquals(Map.of("x", 247, "y", 147, "w", 307, "h", 157), det.getBbox());
+		// Objet droit: même mesure que la stratégie rectangle
+		assertEquals(400, service.detectLongSideByColor(horizontalWire(), skeleton).getPixelLength(), 2);
+	}
+
+	@Test
+	void labelsEveryObjectInOnePass() {
+		BufferedImage img = new BufferedImage(800, 600, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 800, 600);
+		g.setColor(new Color(200, 30, 30));
+		for (int i = 0; i < 5; i++) {
+			g.fillRect(40 + i * 20, 40 + i * 100, 200 + i * 100, 12);
+		}
+		g.fillRect(700, 20, 4, 4);   // sous minArea
+		g.setStroke(new BasicStroke(7f));
+		g.drawArc(500, 60, 200, 200, 0, 180); // fil courbe
+		g.dispose();
+		DecodedFrame frame = new DecodedFrame(img, "tray.png");
+
+		DetectionOptions options = new DetectionOptions(200, 30, 30, 40);
+		List<ImageAnalysisService.AutoAnalysis> objects = service.analyzeAllObjects(frame, options, 50);
+		assertEquals(6, objects.size());
+		// De haut en bas: premier fil (y = 40), l'arc (y = 57), puis les autres fils
+		assertEquals(57, objects.get(1).bbox.get("y"));
+		for (int i = 0; i < 5; i++) {
+			ImageAnalysisService.AutoAnalysis wire = objects.get(i == 0 ? 0 : i + 1);
+			assertEquals(200 + i * 100, wire.pixelLength);
+			assertEquals(12L * (200 + i * 100), wire.pixelCount);
+			assertEquals(Map.of("x", 40 + i * 20, "y", 40 + i * 100, "w", 200 + i * 100, "h", 12), wire.bbox);
+		}
+
+		options.setStrategy(MeasurementStrategy.SKELETON);
+		double arc = service.analyzeAllObjects(frame, options, 50).get(1).pixelLength;
+		assertEquals(Math.PI * 100 * 1.05, arc, 15);
+	}
+
+	@ParameterizedTest
+	@EnumSource(DetectionEngine.class)
+	void hsvToleratesUnevenLighting(DetectionEngine engine) {
+		DetectionOptions rgb = new DetectionOptions(200, 30, 30, 60);
+		rgb.setEngine(engine);
+		DetectionOptions hsv = new DetectionOptions(200, 30, 30, 60);
+		hsv.setEngine(engine);
+		hsv.setColorSpace(ColorSpace.HSV);
+
+		// RGB: la partie sombre est à plus de 60 de la cible, le fil est coupé
+		assertTrue(service.detectLongSideByColor(shadedWire(), rgb).getPixelLength() < 300);
+		ImageAnalysisService.AutoColorDetectionResult det = service.detectLongSideByColor(shadedWire(), hsv);
+		assertTrue(det.isSuccess());
+		assertEquals(Map.of("x", 200, "y", 290, "w", 400, "h", 20), det.getBbox());
+	}
+
+	@ParameterizedTest
+	@EnumSource(DetectionEngine.class)
+	void enginesAgreeWithMaskBfs(DetectionEngine engine) {
+		for (DecodedFrame frame : new DecodedFrame[]{horizontalWire(), diagonalWire(), coiledWire()}) {
+			DetectionOptions reference = new DetectionOptions(null, null, null, 60);
+			DetectionOptions options = new DetectionOptions(null, null, null, 60);
+			options.setEngine(engine);
+			ImageAnalysisService.AutoColorDetectionResult expected = service.detectLongSideByColor(frame, reference);
+			ImageAnalysisService.AutoColorDetectionResult actual = service.detectLongSideByColor(frame, options);
+			assertEquals(expected.isSuccess(), actual.isSuccess(), engine + " " + frame.getSourceName());
+			assertEquals(expected.getBbox(), actual.getBbox(), engine + " " + frame.getSourceName());
+			assertEquals(expected.getPixelLength(), actual.getPixelLength(), engine + " " + frame.getSourceName());
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = DetectionEngine.class, names = {"BFS", "RUNS"})
+	void rowBandsGiveSameResultAsSequential(DetectionEngine engine) {
+		RowBandExecutor bands = new RowBandExecutor(new ForkJoinPool(4), 0);
+		try {
+			ImageAnalysisService parallel = newService(bands);
+			for (DecodedFrame frame : new DecodedFrame[]{horizontalWire(), diagonalWire(), coiledWire()}) {
+				DetectionOptions options = new DetectionOptions(null, null, null, 60);
+				options.setEngine(engine);
+				ImageAnalysisService.AutoColorDetectionResult expected = service.detectLongSideByColor(frame, options);
+				ImageAnalysisService.AutoColorDetectionResult actual = parallel.detectLongSideByColor(frame, options);
+				assertEquals(expected.getBbox(), actual.getBbox(), engine + " " + frame.getSourceName());
+				assertEquals(expected.getPixelLength(), actual.getPixelLength(), engine + " " + frame.getSourceName());
+			}
+		} finally {
+			bands.shutdown();
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {4, 8})
+	void pyramidMatchesFullResolution(int factor) {
+		for (DecodedFrame frame : new DecodedFrame[]{horizontalWire(), diagonalWire(), coiledWire()}) {
+			DetectionOptions options = new DetectionOptions(null, null, null, 60);
+			ImageAnalysisService.AutoColorDetectionResult expected = service.detectLongSideByColor(frame, options);
+			options.setPyramidFactor(factor);
+			ImageAnalysisService.AutoColorDetectionResult actual = service.detectLongSideByColor(frame, options);
+			assertTrue(actual.isSuccess(), frame.getSourceName());
+			for (String k : new String[]{"x", "y", "w", "h"}) {
+				assertEquals(expected.getBbox().get(k), actual.getBbox().get(k), 2, k + " " + frame.getSourceName());
+			}
+			assertEquals(expected.getPixelLength(), actual.getPixelLength(), 2, frame.getSourceName());
+		}
+	}
+
+	/** Diagonale sur toute la hauteur d'une grande image: la graine grossière vient de l'extrémité haute. */
+	private static DecodedFrame largeDiagonal(int width, int height, float stroke) {
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, width, height);
+		g.setColor(new Color(20, 40, 220));
+		g.setStroke(new BasicStroke(stroke));
+		g.drawLine(20, 20, width - 20, height - 20);
+		g.dispose();
+		return new DecodedFrame(img, "diagonal-" + width + "x" + height + "-" + stroke + ".png");
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = DetectionEngine.class, names = {"BFS", "LAZY"})
+	void pyramidMatchesFullResolutionOnLargeDiagonals(DetectionEngine engine) {
+		DecodedFrame[] frames = {
+				largeDiagonal(1154, 648, 3f), largeDiagonal(1154, 648, 10f),
+				largeDiagonal(1975, 1785, 3f), largeDiagonal(1975, 1785, 10f)
+		};
+		for (DecodedFrame frame : frames) {
+			DetectionOptions options = new DetectionOptions(20, 40, 220, 60);
+			options.setEngine(engine);
+			ImageAnalysisService.AutoColorDetectionResult expected = service.detectLongSideByColor(frame, options);
+			options.setPyramidFactor(4);
+			ImageAnalysisService.AutoColorDetectionResult actual = service.detectLongSideByColor(frame, options);
+			assertTrue(actual.isSuccess(), engine + " " + frame.getSourceName());
+			assertEquals(expected.getBbox(), actual.getBbox(), engine + " " + frame.getSourceName());
+			assertEquals(expected.getPixelLength(), actual.getPixelLength(), 2, engine + " " + frame.getSourceName());
+		}
+	}
+
+	private static MockMultipartFile png(DecodedFrame frame) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(frame.getImage(), "png", out);
+		return new MockMultipartFile("file", frame.getSourceName(), "image/png", out.toByteArray());
+	}
+
+	@Test
+	void regionHintDecodesOnlyAroundObject() throws IOException {
+		MockMultipartFile file = png(diagonalWire());
+		ImageAnalysisService.AutoAnalysis full = service.analyzeFabricAuto(file, new DetectionOptions(20, 40, 220, 60));
+
+		DetectionOptions hinted = new DetectionOptions(20, 40, 220, 60);
+		hinted.setRegionHint(RegionHint.parse("{\"x\":145,\"y\":95,\"w\":510,\"h\":410}"));
+		ImageAnalysisService.AutoAnalysis fromHint = service.analyzeFabricAuto(file, hinted);
+
+		assertFalse(full.regionHintUsed);
+		assertTrue(fromHint.regionHintUsed);
+		assertEquals(full.bbox, fromHint.bbox);
+		assertEquals(full.pixelLength, fromHint.pixelLength);
+		assertEquals(800, fromHint.imageWidth);
+		assertEquals(600, fromHint.imageHeight);
+	}
+
+	@Test
+	void tooTightRegionHintFallsBackToFullFrame() throws IOException {
+		MockMultipartFile file = png(horizontalWire());
+		DetectionOptions hinted = new DetectionOptions(200, 30, 30, 40);
+		hinted.setRegionHint(RegionHint.parse("380,295,40,10"));
+		ImageAnalysisService.AutoAnalysis out = service.analyzeFabricAuto(file, hinted);
+		assertEquals(Map.of("x", 200, "y", 290, "w", 400, "h", 20), out.bbox);
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = DetectionEngine.class, names = {"BFS", "OPENCV"})
+	void decodesUploadFromStream(DetectionEngine engine) throws IOException {
+		MockMultipartFile file = png(diagonalWire());
+		assertEquals(new Dimension(800, 600), DecodedFrame.readDimensions(file));
+		DetectionOptions options = new DetectionOptions(20, 40, 220, 60);
+		options.setEngine(engine);
+		ImageAnalysisService.AutoAnalysis fromUpload = service.analyzeFabricAuto(file, options);
+		ImageAnalysisService.AutoAnalysis fromFrame = service.analyzeFabricAuto(diagonalWire(), options);
+		assertEquals(fromFrame.bbox, fromUpload.bbox);
+		assertEquals(fromFrame.pixelLength, fromUpload.pixelLength);
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_INT_RGB,
+			BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR})
+	void directRowReadMatchesGetRgb(int type) {
+		BufferedImage img = new BufferedImage(90, 40, type);
+		for (int y = 0; y < 40; y++) {
+			for (int x = 0; x < 90; x++) img.setRGB(x, y, 0xFF000000 | (x * 2) << 16 | (y * 5) << 8 | (x + y));
+		}
+		DecodedFrame frame = new DecodedFrame(img, "raster.png");
+		// Vue découpée: le pixel (0, 0) est décalé dans le tampon parent
+		DecodedFrame crop = frame.crop(13, 7, 50, 20);
+		assertEquals(type != BufferedImage.TYPE_INT_BGR, frame.hasDirectAccess());
+		int[] row = new int[90];
+		for (int y = 0; y < 20; y++) {
+			crop.readRow(y, row);
+			for (int x = 0; x < 50; x++) {
+				assertEquals(img.getRGB(13 + x, 7 + y), row[x]);
+				assertEquals(img.getRGB(13 + x, 7 + y), crop.rgb(x, y));
+			}
+		}
+		frame.readRow(20, 5, 30, row);
+		for (int x = 0; x < 30; x++) assertEquals(img.getRGB(20 + x, 5), row[x]);
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = DetectionEngine.class, names = {"BFS", "OPENCV"})
+	void reducedDecodeReportsSourcePixels(DetectionEngine engine) throws IOException {
+		MockMultipartFile file = png(horizontalWire());
+		DetectionOptions options = new DetectionOptions(200, 30, 30, 40);
+		options.setEngine(engine);
+		options.setDecodeScale(4);
+		ImageAnalysisService.AutoAnalysis out = service.analyzeFabricAuto(file, options);
+		assertTrue(out.success);
+		assertEquals(400, out.pixelLength, 8);
+		assertEquals(200, out.bbox.get("x"), 4);
+		assertEquals(290, out.bbox.get("y"), 4);
+		assertEquals(800, out.imageWidth);
+		assertEquals(600, out.imageHeight);
+		assertThrows(IllegalArgumentException.class, () -> options.setDecodeScale(3));
+	}
+}
@@ -0,0 +1,90 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.DetectionEngine;
+import com.example.wirelength.model.DetectionOptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeasurementCacheTests {
+
+	private static MeasurementCache.Key key(byte[] content, int tolerance) throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "a.png", "image/png", content);
+		return MeasurementCache.Key.of(file, new DetectionOptions(200, 30, 30, tolerance), DetectionEngine.BFS);
+	}
+
+	private static ImageAnalysisService.AutoAnalysis analysis(int pixelLength) {
+		ImageAnalysisService.AutoAnalysis a = new ImageAnalysisService.AutoAnalysis();
+		a.success = true;
+		a.pixelLength = pixelLength;
+		a.bbox = Map.of("x", 0, "y", 0, "w", pixelLength, "h", 1);
+		return a;
+	}
+
+	@Test
+	void keyDependsOnContentAndParameters() throws Exception {
+		assertEquals(key(new byte[]{1, 2, 3}, 40), key(new byte[]{1, 2, 3}, 40));
+		assertNotEquals(key(new byte[]{1, 2, 3}, 40), key(new byte[]{1, 2, 4}, 40));
+		assertNotEquals(key(new byte[]{1, 2, 3}, 40), key(new byte[]{1, 2, 3}, 41));
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() throws Exception {
+		MeasurementCache cache = new MeasurementCache(2);
+		AtomicInteger loads = new AtomicInteger();
+		MeasurementCache.Key a = key(new byte[]{1}, 40), b = key(new byte[]{2}, 40), c = key(new byte[]{3}, 40);
+
+		cache.get(a, () -> analysis(loads.incrementAndGet()));
+		cache.get(b, () -> analysis(loads.incrementAndGet()));
+		assertEquals(1, cache.get(a, () -> analysis(loads.incrementAndGet())).pixelLength);
+		cache.get(c, () -> analysis(loads.incrementAndGet()));
+		assertEquals(1, cache.get(a, () -> analysis(loads.incrementAndGet())).pixelLength);
+		assertEquals(4, cache.get(b, () -> analysis(loads.incrementAndGet())).pixelLength);
+
+		assertEquals(2, cache.getHits());
+		assertEquals(4, cache.getMisses());
+		assertEquals(2, cache.getEvictions());
+	}
+
+	@Test
+	void concurrentIdenticalRequestsShareOneComputation() throws Exception {
+		MeasurementCache cache = new MeasurementCache(16);
+		MeasurementCache.Key k = key(new byte[]{7, 7}, 40);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		MeasurementCache.Loader slow = () -> {
+			loads.incrementAndGet();
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return analysis(300);
+		};
+
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			Future<ImageAnalysisService.AutoAnalysis> first = pool.submit(() -> cache.get(k, slow));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			Future<ImageAnalysisService.AutoAnalysis> second = pool.submit(() -> cache.get(k, slow));
+			while (cache.getCoalesced() == 0) Thread.onSpinWait();
+			release.countDown();
+			assertEquals(300, first.get().pixelLength);
+			assertEquals(300, second.get().pixelLength);
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(1, loads.get());
+	}
+}
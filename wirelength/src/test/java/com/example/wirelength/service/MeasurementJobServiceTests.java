@@ -0,0 +1,117 @@
+package com.example.wirelength.service;
+
+import com.example.wirelength.model.CalibrationConfig;
+import com.example.wirelength.model.DetectionOptions;
+import com.example.wirelength.model.JobPriority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeasurementJobServiceTests {
+
+	@TempDir
+	Path spillDir;
+
+	private final PixelBudget budget = new PixelBudget(1_000_000, 20, 1);
+	private final CalibrationConfig calibration = new CalibrationConfig("test", 0.5, "banc", "test");
+	private MeasurementJobService jobs;
+
+	private MeasurementJobService newService(long ttlSeconds) {
+		ImageAnalysisService analysis = new ImageAnalysisService();
+		ReflectionTestUtils.setField(analysis, "rowBandExecutor", RowBandExecutor.sequential());
+		ReflectionTestUtils.setField(analysis, "measurementCache", new MeasurementCache(0));
+		ReflectionTestUtils.setField(analysis, "pipelineMetrics", PipelineMetrics.disabled());
+		ReflectionTestUtils.setField(analysis, "workBufferPool", WorkBufferPool.disabled());
+		MeasurementJobService s = new MeasurementJobService();
+		ReflectionTestUtils.setField(s, "imageAnalysisService", analysis);
+		ReflectionTestUtils.setField(s, "pixelBudget", budget);
+		ReflectionTestUtils.setField(s, "workers", 1);
+		ReflectionTestUtils.setField(s, "queueCapacity", 8);
+		ReflectionTestUtils.setField(s, "ttlSeconds", ttlSeconds);
+		ReflectionTestUtils.setField(s, "spillDir", spillDir.toString());
+		s.start();
+		return s;
+	}
+
+	@AfterEach
+	void stop() {
+		if (jobs != null) jobs.stop();
+	}
+
+	private static MockMultipartFile wire(String name, int length) throws IOException {
+		BufferedImage img = new BufferedImage(320, 240, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 320, 240);
+		g.setColor(new Color(200, 30, 30));
+		g.fillRect(160 - length / 2, 115, length, 10);
+		g.dispose();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(img, "png", out);
+		return new MockMultipartFile("file", name, "image/png", out.toByteArray());
+	}
+
+	@Test
+	void interactiveJobsRunBeforeQueuedBulkJobs() throws Exception {
+		jobs = newService(3600);
+		DetectionOptions red = new DetectionOptions(200, 30, 30, 40);
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		// Budget de pixels pris: le seul worker reste bloqué sur la première tâche
+		PixelBudget.Permit held = budget.acquire(1_000_000);
+		MeasurementJobService.Job first = jobs.submit(wire("first.png", 100), red, calibration, JobPriority.BULK);
+		while (first.getStatus() != MeasurementJobService.Status.RUNNING) Thread.sleep(5);
+		MeasurementJobService.Job[] waiting = {
+				jobs.submit(wire("bulk-1.png", 120), red, calibration, JobPriority.BULK),
+				jobs.submit(wire("bulk-2.png", 140), red, calibration, JobPriority.BULK),
+				jobs.submit(wire("interactive.png", 160), red, calibration, JobPriority.INTERACTIVE)};
+		for (MeasurementJobService.Job job : waiting) {
+			jobs.await(job, 10_000).thenAccept(j -> order.add(j.getImageName()));
+		}
+		assertEquals(1, jobs.getQueuedCount(JobPriority.INTERACTIVE));
+		held.close();
+
+		MeasurementJobService.Job last = jobs.await(waiting[1], 10_000).get(10, TimeUnit.SECONDS);
+		assertEquals(MeasurementJobService.Status.SUCCEEDED, last.getStatus());
+		while (order.size() < 3) Thread.sleep(5);
+		assertEquals(List.of("interactive.png", "bulk-1.png", "bulk-2.png"), order);
+
+		// Résultat au format AnalysisResult, longueurs converties avec la calibration figée
+		assertEquals("fabric_measurement", last.getResult().getAnalysisType());
+		assertEquals(140.0, last.getResult().getLengthInPixels());
+		assertEquals(70.0, last.getResult().getLengthInMm());
+		// Fichiers temporaires supprimés à la fin des tâches
+		jobs.await(first, 10_000).get(10, TimeUnit.SECONDS);
+		try (Stream<Path> files = Files.list(spillDir)) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	void finishedJobsExpireAfterTtl() throws Exception {
+		jobs = newService(0);
+		MeasurementJobService.Job job = jobs.submit(wire("a.png", 100), new DetectionOptions(200, 30, 30, 40),
+				calibration, JobPriority.INTERACTIVE);
+		assertSame(job, jobs.get(job.getId()));
+		jobs.await(job, 10_000).get(10, TimeUnit.SECONDS);
+		Thread.sleep(2);
+		assertNull(jobs.get(job.getId()));
+	}
+}
@@ -0,0 +1,39 @@
+package com.example.wirelength.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PixelBudgetTests {
+
+	@Test
+	void rejectsWhenBudgetIsExhaustedAndRecoversOnRelease() throws Exception {
+		PixelBudget budget = new PixelBudget(10_000_000, 20, 3);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		budget.bindTo(registry);
+
+		PixelBudget.Permit first = budget.acquire(8_000_000);
+		PixelBudget.BudgetExhaustedException e =
+				assertThrows(PixelBudget.BudgetExhaustedException.class, () -> budget.acquire(8_000_000));
+		assertEquals(3, e.getRetryAfterSeconds());
+		assertEquals(1.0, registry.get("wirelength.admission.rejected").counter().count());
+
+		first.close();
+		first.close();
+		assertEquals(budget.getTotalPixels(), budget.getAvailablePixels());
+		try (PixelBudget.Permit second = budget.acquire(8_000_000)) {
+			assertTrue(budget.getAvailablePixels() < 3_000_000);
+		}
+		assertEquals(3, registry.get("wirelength.admission.wait").timer().count());
+	}
+
+	@Test
+	void oversizedImageTakesWholeBudgetInsteadOfBeingRejectedForever() throws Exception {
+		PixelBudget budget = new PixelBudget(1_000_000, 20, 1);
+		try (PixelBudget.Permit permit = budget.acquire(50_000_000)) {
+			assertEquals(0, budget.getAvailablePixels());
+		}
+		assertEquals(budget.getTotalPixels(), budget.getAvailablePixels());
+	}
+}
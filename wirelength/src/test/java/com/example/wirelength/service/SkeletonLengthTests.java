@@ -0,0 +1,62 @@
+package com.example.wirelength.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SkeletonLengthTests {
+
+	private static final ColorMatcher RED = new ColorMatcher(200, 30, 30, 60);
+
+	private static BitMask bar(int width, int thickness) {
+		BitMask mask = new BitMask(width + 2, thickness + 2);
+		for (int y = 1; y <= thickness; y++) {
+			for (int x = 1; x <= width; x++) mask.set(x, y);
+		}
+		return mask;
+	}
+
+	@Test
+	void thinningLeavesOnePixelWideLine() {
+		// Largeur > 64: le voisinage traverse les frontières de mots
+		BitMask mask = bar(150, 15);
+		SkeletonLength.thin(mask);
+		int columns = 0;
+		for (int x = 1; x <= 150; x++) {
+			int n = 0;
+			for (int y = 0; y < mask.getHeight(); y++) if (mask.get(x, y)) n++;
+			assertTrue(n <= 2, "colonne " + x);
+			if (n > 0) columns++;
+		}
+		assertTrue(columns > 130);
+	}
+
+	@Test
+	void longestPathWeightsDiagonalStepsBySqrt2() {
+		BitMask mask = new BitMask(100, 60);
+		for (int i = 0; i < 40; i++) mask.set(5 + i, 5 + i);       // 39 pas diagonaux
+		for (int x = 45; x < 90; x++) mask.set(x, 44);              // 45 pas droits
+		mask.set(21, 19);                                           // branche d'un pixel, ignorée
+		assertEquals(39 * Math.sqrt(2) + 45, SkeletonLength.longestPath(mask), 1e-6);
+	}
+
+	@Test
+	void measureKeepsOnlyTheDetectedComponent() {
+		BufferedImage img = new BufferedImage(400, 200, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 400, 200);
+		g.setColor(new Color(200, 30, 30));
+		g.fillRect(50, 95, 300, 10);
+		// Même couleur dans le bbox du fil, non connexe
+		g.fillRect(60, 80, 200, 5);
+		g.dispose();
+		DecodedFrame frame = new DecodedFrame(img, "two.png");
+		ComponentStats comp = new MaskFloodFillDetector().detect(frame, RED, new DetectionContext(RowBandExecutor.sequential()));
+		assertEquals(300, SkeletonLength.measure(frame, RED, comp), 3);
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.wirelength.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkBufferPoolTests {
+
+	@Test
+	void releasedBufferIsReusedOnlyAfterClearingItsDirtyRows() {
+		WorkBufferPool pool = new WorkBufferPool(1L << 20);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		pool.bindTo(registry);
+
+		BitMask first = pool.acquire(300, 200);
+		first.set(0, 10);
+		first.set(299, 12);
+		long[] buffer = first.buffer();
+		pool.release(first);
+		// 3 lignes de 5 mots effacées, pas les 200 lignes
+		assertEquals(15.0, registry.get("wirelength.buffers.cleared.words").functionCounter().count());
+
+		// Autres dimensions, même classe de taille: même tampon, entièrement à 0
+		BitMask second = pool.acquire(250, 230);
+		assertSame(buffer, second.buffer());
+		assertEquals(0, second.cardinality());
+		assertEquals(1, pool.getReusedCount());
+		assertEquals(0.5, registry.get("wirelength.buffers.reuse.ratio").gauge().value());
+	}
+
+	@Test
+	void retentionIsCapped() {
+		WorkBufferPool pool = new WorkBufferPool(8 * 1024);
+		BitMask a = pool.acquire(64, 1000);
+		BitMask b = pool.acquire(64, 1000);
+		pool.release(a);
+		pool.release(b);
+		assertEquals(1, pool.getRetainedBuffers());
+		assertEquals(8 * 1024, pool.getRetainedBytes());
+	}
+
+	@Test
+	void detectorsGiveSameResultOnReusedBuffers() {
+		WorkBufferPool pool = new WorkBufferPool(64L << 20);
+		DetectionContext context = new DetectionContext(RowBandExecutor.sequential(), PipelineMetrics.disabled(), pool);
+		ColorMatcher red = new ColorMatcher(200, 30, 30, 60);
+		DecodedFrame big = wire(900, 700, 100, 340, 700, 20);
+		DecodedFrame small = wire(880, 690, 430, 100, 20, 500);
+		for (ComponentDetector detector : new ComponentDetector[]{new MaskFloodFillDetector(), new LazyFloodFillDetector()}) {
+			ComponentStats expected = detector.detect(small, red, DetectionContext.sequential());
+			detector.detect(big, red, context);
+			ComponentStats again = detector.detect(small, red, context);
+			assertEquals(expected.bboxMap(), again.bboxMap());
+			assertEquals(expected.getCount(), again.getCount());
+		}
+		assertTrue(pool.getReuseRatio() > 0.5);
+	}
+
+	private static DecodedFrame wire(int width, int height, int x, int y, int w, int h) {
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = img.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, width, height);
+		g.setColor(new Color(200, 30, 30));
+		g.fillRect(x, y, w, h);
+		g.dispose();
+		return new DecodedFrame(img, "wire.png");
+	}
+}